@@ -0,0 +1,36 @@
+-- Latencia da busca por nome (GET /animes/search) conforme a tabela cresce.
+-- Roda em um schema separado para nao mexer nos dados da aplicacao, depois do init.sql e das migrations:
+--   psql -h localhost -U postgres -f benchmark/anime_search.sql
+-- Para cada tamanho (10 mil, 100 mil e 1 milhao de linhas) mede a mesma query do AnimeRepository.search
+-- com o indice de trigramas e depois com o indice desligado, que e o custo de filtrar sem indice.
+\timing on
+\set ON_ERROR_STOP on
+
+drop schema if exists anime_bench cascade;
+create schema anime_bench;
+create table anime_bench.anime
+(
+    id serial primary key,
+    name varchar not null,
+    version integer default 0 not null
+);
+
+create index anime_bench_name_trgm_idx
+    on anime_bench.anime using gin (name anime.gin_trgm_ops);
+
+-- similarity e gin_trgm_ops ficam no schema anime, junto com a extensao
+set search_path = anime_bench, anime;
+
+\echo '==== 10000 linhas ===='
+\set rows 10000
+\ir anime_search_step.sql
+
+\echo '==== 100000 linhas ===='
+\set rows 100000
+\ir anime_search_step.sql
+
+\echo '==== 1000000 linhas ===='
+\set rows 1000000
+\ir anime_search_step.sql
+
+drop schema anime_bench cascade;
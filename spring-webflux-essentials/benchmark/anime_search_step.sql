@@ -0,0 +1,27 @@
+-- Completa a tabela ate :rows linhas e mede a busca, incluido por anime_search.sql
+insert into anime_bench.anime (name)
+select (array ['Naruto', 'Dragon Ball', 'One Piece', 'Bleach', 'Hunter x Hunter', 'Death Note'])[1 + i % 6]
+           || ' ' || substr(md5(i::text), 1, 8)
+from generate_series((select count(*) from anime_bench.anime) + 1, :rows) as i;
+
+analyze anime_bench.anime;
+
+-- trecho no meio do nome
+explain (analyze, buffers, summary)
+select * from anime_bench.anime where name ilike '%piece 3f%'
+order by name ilike 'piece 3f%' desc, similarity(name, 'piece 3f') desc, id
+limit 21 offset 0;
+
+-- prefixo com muitos resultados, o custo vem da ordenacao por relevancia
+explain (analyze, buffers, summary)
+select * from anime_bench.anime where name ilike '%naruto%'
+order by name ilike 'naruto%' desc, similarity(name, 'naruto') desc, id
+limit 21 offset 0;
+
+-- mesma busca sem indice, equivalente ao filtro que os clientes fazem hoje sobre GET /animes
+set enable_bitmapscan = off;
+explain (analyze, buffers, summary)
+select * from anime_bench.anime where name ilike '%piece 3f%'
+order by name ilike 'piece 3f%' desc, similarity(name, 'piece 3f') desc, id
+limit 21 offset 0;
+reset enable_bitmapscan;
@@ -3,7 +3,8 @@ create schema anime;
 create table anime.anime
 (
     id serial not null,
-    name varchar not null
+    name varchar not null,
+    version integer default 0 not null
 );
 
 create unique index anime_id_uindex
@@ -13,6 +14,30 @@ alter table anime.anime
     add constraint anime_pk
         primary key (id);
 
+create extension if not exists pg_trgm schema anime;
+
+create index anime_name_trgm_idx
+    on anime.anime using gin (name anime.gin_trgm_ops);
+
+create function anime.anime_notify_change() returns trigger
+    language plpgsql as
+$$
+begin
+    if tg_op = 'DELETE' then
+        perform pg_notify('anime_changes', 'D:' || old.id);
+    else
+        perform pg_notify('anime_changes', left(tg_op, 1) || ':' || new.id || ':' || new.version);
+    end if;
+    return null;
+end;
+$$;
+
+create trigger anime_notify_change
+    after insert or update or delete
+    on anime.anime
+    for each row
+execute procedure anime.anime_notify_change();
+
 
 INSERT INTO anime.anime (id, name) VALUES (DEFAULT, 'Naruto');
 
@@ -0,0 +1,3 @@
+-- Versao do anime usada no ETag, incrementada a cada escrita
+alter table anime.anime
+    add column if not exists version integer default 0 not null;
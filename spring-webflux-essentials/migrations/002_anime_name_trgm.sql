@@ -0,0 +1,7 @@
+-- Indice de trigramas para a busca por trecho do nome (GET /animes/search)
+-- A extensao fica no schema anime porque a conexao da aplicacao usa search_path=anime (similarity)
+-- concurrently nao bloqueia as escritas, por isso nao pode rodar dentro de uma transacao
+create extension if not exists pg_trgm schema anime;
+
+create index concurrently if not exists anime_name_trgm_idx
+    on anime.anime using gin (name anime.gin_trgm_ops);
@@ -0,0 +1,23 @@
+-- Notifica cada anime criado, alterado ou removido no canal anime_changes, lido pelo AnimeSnapshotLoader de cada instancia
+-- Payload curto (D:id ou I/U:id:version) porque o NOTIFY aceita ate 8000 bytes, o nome e relido pelo id
+-- O Postgres so entrega as notificacoes no commit e junta as repetidas dentro da mesma transacao
+create or replace function anime.anime_notify_change() returns trigger
+    language plpgsql as
+$$
+begin
+    if tg_op = 'DELETE' then
+        perform pg_notify('anime_changes', 'D:' || old.id);
+    else
+        perform pg_notify('anime_changes', left(tg_op, 1) || ':' || new.id || ':' || new.version);
+    end if;
+    return null;
+end;
+$$;
+
+drop trigger if exists anime_notify_change on anime.anime;
+
+create trigger anime_notify_change
+    after insert or update or delete
+    on anime.anime
+    for each row
+execute procedure anime.anime_notify_change();
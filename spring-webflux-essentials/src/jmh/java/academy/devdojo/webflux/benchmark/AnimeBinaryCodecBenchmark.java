@@ -0,0 +1,128 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.codec.AnimeCborEncoder;
+import academy.devdojo.webflux.codec.AnimeJsonEncoder;
+import academy.devdojo.webflux.codec.AnimeProtobufDecoder;
+import academy.devdojo.webflux.codec.AnimeProtobufEncoder;
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de escrever e ler uma lista de animes em JSON, protobuf delimitado e CBOR com os codecs do CodecConfig.
+ * O tamanho do corpo de cada formato e impresso no setup, ao lado dos tempos e do gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeBinaryCodecBenchmark {
+
+    private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+
+    private static final ResolvableType ANIME_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, Anime.class);
+
+    @Param({"json", "protobuf", "cbor"})
+    private String format;
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private List<Anime> animes;
+
+    private Encoder<Anime> encoder;
+
+    private Decoder<?> decoder;
+
+    private MimeType mimeType;
+
+    private DataBufferFactory bufferFactory;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        animes = BenchmarkAnimes.create(size);
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        switch (format) {
+            case "json":
+                ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+                encoder = new AnimeJsonEncoder(jsonMapper);
+                decoder = new Jackson2JsonDecoder(jsonMapper);
+                mimeType = MediaType.APPLICATION_JSON;
+                break;
+            case "protobuf":
+                encoder = new AnimeProtobufEncoder();
+                decoder = new AnimeProtobufDecoder();
+                mimeType = AnimeProtobufEncoder.APPLICATION_PROTOBUF;
+                break;
+            case "cbor":
+                ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+                encoder = castEncoder(new AnimeCborEncoder(cborMapper));
+                decoder = new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR);
+                mimeType = MediaType.APPLICATION_CBOR;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+        DataBuffer encoded = DataBufferUtils.join(encode(DefaultDataBufferFactory.sharedInstance)).block();
+        payload = new byte[encoded.readableByteCount()];
+        encoded.read(payload);
+        System.out.printf("%n%s payload for %d animes: %d bytes%n", format, size, payload.length);
+    }
+
+    @Benchmark
+    public int encode() {
+        DataBuffer buffer = DataBufferUtils.join(encode(bufferFactory)).block();
+        int bytes = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    @Benchmark
+    public Object decode() {
+        return decoder.decodeToMono(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(payload)), ANIME_LIST_TYPE,
+                mimeType, Collections.emptyMap()).block();
+    }
+
+    private Flux<DataBuffer> encode(DataBufferFactory factory) {
+        return encoder.encode(Flux.fromIterable(animes), factory, ANIME_TYPE, mimeType, Collections.emptyMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Encoder<Anime> castEncoder(Encoder<?> encoder) {
+        return (Encoder<Anime>) encoder;
+    }
+}
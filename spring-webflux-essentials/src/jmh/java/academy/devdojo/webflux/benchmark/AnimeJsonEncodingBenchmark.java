@@ -0,0 +1,107 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.codec.AnimeJsonEncoder;
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do Jackson2JsonEncoder ao escrever animes nos DataBuffers do Netty, como no GET /animes (Flux)
+ * e nas respostas que devolvem uma lista pronta, comparado ao AnimeJsonEncoder registrado no CodecConfig.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeJsonEncodingBenchmark {
+
+    private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+
+    private static final ResolvableType ANIME_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, Anime.class);
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private List<Anime> animes;
+
+    private Jackson2JsonEncoder encoder;
+
+    private AnimeJsonEncoder animeJsonEncoder;
+
+    private DataBufferFactory bufferFactory;
+
+    @Setup
+    public void setUp() {
+        animes = BenchmarkAnimes.create(size);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        encoder = new Jackson2JsonEncoder(objectMapper);
+        animeJsonEncoder = new AnimeJsonEncoder(objectMapper);
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @Benchmark
+    public int encodeFlux() {
+        Flux<DataBuffer> buffers = encoder.encode(Flux.fromIterable(animes), bufferFactory, ANIME_TYPE,
+                MediaType.APPLICATION_JSON, Collections.emptyMap());
+        return release(DataBufferUtils.join(buffers).block());
+    }
+
+    @Benchmark
+    public int encodeList() {
+        return release(encoder.encodeValue(animes, bufferFactory, ANIME_LIST_TYPE,
+                MediaType.APPLICATION_JSON, Collections.emptyMap()));
+    }
+
+    @Benchmark
+    public int encodeFluxAnimeEncoder() {
+        Flux<DataBuffer> buffers = animeJsonEncoder.encode(Flux.fromIterable(animes), bufferFactory, ANIME_TYPE,
+                MediaType.APPLICATION_JSON, Collections.emptyMap());
+        return release(DataBufferUtils.join(buffers).block());
+    }
+
+    @Benchmark
+    public int encodeNdjson() {
+        Flux<DataBuffer> buffers = encoder.encode(Flux.fromIterable(animes), bufferFactory, ANIME_TYPE,
+                MediaType.APPLICATION_NDJSON, Collections.emptyMap());
+        return release(DataBufferUtils.join(buffers).block());
+    }
+
+    @Benchmark
+    public int encodeNdjsonAnimeEncoder() {
+        Flux<DataBuffer> buffers = animeJsonEncoder.encode(Flux.fromIterable(animes), bufferFactory, ANIME_TYPE,
+                MediaType.APPLICATION_NDJSON, Collections.emptyMap());
+        return release(DataBufferUtils.join(buffers).block());
+    }
+
+    private static int release(DataBuffer buffer) {
+        int bytes = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+}
@@ -0,0 +1,136 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.config.DatabaseProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimePage;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.service.AnimeBatchLoader;
+import academy.devdojo.webflux.service.AnimeCache;
+import academy.devdojo.webflux.service.AnimeChangeFeed;
+import academy.devdojo.webflux.service.AnimeNameIndex;
+import academy.devdojo.webflux.service.AnimeService;
+import academy.devdojo.webflux.service.AnimeSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Pipelines reativos do AnimeService sobre um repositorio em memoria, o que sobra e o custo dos operadores,
+ * do cache, do indice de nomes e das metricas. Os metodos FromSnapshot leem da copia local em arquivo mapeado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimeServiceBenchmark {
+
+    private static final int ANIMES = 1_000;
+
+    private AnimeService animeService;
+
+    private AnimeService snapshotService;
+
+    private AnimeBatchLoader animeBatchLoader;
+
+    private Path snapshotDirectory;
+
+    private List<Integer> ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Anime> animes = BenchmarkAnimes.create(ANIMES);
+        AnimeRepository animeRepository = InMemoryAnimeRepository.create(animes);
+
+        // Sem a janela do loader em lote, que so acrescentaria a espera configurada a cada findById
+        AnimeProperties animeProperties = new AnimeProperties();
+        animeProperties.getLoader().setEnabled(false);
+
+        AnimeNameIndex animeNameIndex = new AnimeNameIndex(animeProperties);
+        animeNameIndex.replaceAll(animes.stream().mapToInt(Anime::getId).toArray(),
+                animes.stream().map(Anime::getName).toArray(String[]::new));
+
+        animeBatchLoader = new AnimeBatchLoader(animeRepository, animeProperties, new DatabaseProperties(),
+                new SimpleMeterRegistry());
+        animeService = new AnimeService(animeRepository, animeProperties, null,
+                new AnimeCache(animeProperties), animeBatchLoader, animeNameIndex,
+                new AnimeChangeFeed(animeProperties, new SimpleMeterRegistry()), new AnimeSnapshot(animeProperties));
+        ids = IntStream.rangeClosed(1, AnimeService.DEFAULT_PAGE_SIZE).boxed().collect(Collectors.toList());
+
+        animeService.findById(1).block();
+
+        snapshotDirectory = Files.createTempDirectory("anime-snapshot");
+        AnimeProperties snapshotProperties = new AnimeProperties();
+        snapshotProperties.getSnapshot().setEnabled(true);
+        snapshotProperties.getSnapshot().setPath(snapshotDirectory.resolve("anime.snapshot").toString());
+        snapshotProperties.getSnapshot().setReads(AnimeProperties.ReadSource.SNAPSHOT);
+        AnimeSnapshot animeSnapshot = new AnimeSnapshot(snapshotProperties);
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+        snapshotService = new AnimeService(animeRepository, snapshotProperties, null,
+                new AnimeCache(snapshotProperties), animeBatchLoader, animeNameIndex,
+                new AnimeChangeFeed(snapshotProperties, new SimpleMeterRegistry()), animeSnapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        animeBatchLoader.destroy();
+        FileSystemUtils.deleteRecursively(snapshotDirectory);
+    }
+
+    @Benchmark
+    public Anime findByIdCached() {
+        return animeService.findById(1).block();
+    }
+
+    @Benchmark
+    public Anime findByIdFromSnapshot() {
+        return snapshotService.findById(ANIMES / 2).block();
+    }
+
+    @Benchmark
+    public List<Anime> findByIds() {
+        return animeService.findByIds(ids).collectList().block();
+    }
+
+    @Benchmark
+    public AnimePage findPage() {
+        return animeService.findPage(null, AnimeService.DEFAULT_PAGE_SIZE, false).block();
+    }
+
+    @Benchmark
+    public List<Anime> findAll() {
+        return animeService.findAll().collectList().block();
+    }
+
+    @Benchmark
+    public List<Anime> findAllFromSnapshot() {
+        return snapshotService.findAll().collectList().block();
+    }
+
+    @Benchmark
+    public List<AnimeSuggestion> suggest() {
+        return animeService.suggest("Yu", 10).collectList().block();
+    }
+}
@@ -0,0 +1,27 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.domain.Anime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkAnimes {
+
+    private static final String[] NAMES = {"Naruto", "One Piece", "Yu Yu Hakusho", "Hunter x Hunter", "Fullmetal Alchemist",
+            "Death Note", "Cowboy Bebop", "Dragon Ball Z", "Neon Genesis Evangelion", "Shingeki no Kyojin"};
+
+    private BenchmarkAnimes() {
+    }
+
+    static List<Anime> create(int size) {
+        List<Anime> animes = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            animes.add(Anime.builder()
+                    .id(id)
+                    .name(NAMES[id % NAMES.length] + " " + id)
+                    .version(1)
+                    .build());
+        }
+        return animes;
+    }
+}
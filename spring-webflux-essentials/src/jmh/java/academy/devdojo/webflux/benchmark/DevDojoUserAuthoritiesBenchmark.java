@@ -0,0 +1,42 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.domain.DevDojoUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getAuthorities e chamado em toda autorizacao, inclusive nas respostas vindas do cache de credenciais.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DevDojoUserAuthoritiesBenchmark {
+
+    private final DevDojoUser user = new DevDojoUser(1, "User", "user", "{bcrypt}hash", "ROLE_USER");
+
+    private final DevDojoUser admin = new DevDojoUser(2, "Admin", "admin", "{bcrypt}hash", "ROLE_ADMIN,ROLE_USER");
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> userAuthorities() {
+        return user.getAuthorities();
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> adminAuthorities() {
+        return admin.getAuthorities();
+    }
+}
@@ -0,0 +1,72 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.exception.CustomAttributes;
+import academy.devdojo.webflux.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho de um 404 de anime inexistente: criacao da excecao, atributos do CustomAttributes e o JSON
+ * escrito pelo GlobalExceptionHandler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorRenderingBenchmark {
+
+    private CustomAttributes customAttributes;
+
+    private GlobalExceptionHandler globalExceptionHandler;
+
+    @Setup
+    public void setUp() throws Exception {
+        customAttributes = new CustomAttributes();
+        globalExceptionHandler = new GlobalExceptionHandler(customAttributes, new WebProperties.Resources(),
+                new StaticApplicationContext(), ServerCodecConfigurer.create(), new SimpleMeterRegistry());
+        globalExceptionHandler.afterPropertiesSet();
+    }
+
+    @Benchmark
+    public Map<String, Object> errorAttributes() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes/99"));
+        customAttributes.storeErrorInformation(notFound(), exchange);
+        return customAttributes.getErrorAttributes(ServerRequest.create(exchange, Collections.emptyList()),
+                ErrorAttributeOptions.defaults());
+    }
+
+    @Benchmark
+    public MockServerWebExchange renderError() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes/99"));
+        globalExceptionHandler.handle(exchange, notFound()).block();
+        return exchange;
+    }
+
+    private static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found");
+    }
+}
@@ -0,0 +1,81 @@
+package academy.devdojo.webflux.benchmark;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Substituto em memoria do AnimeRepository, os benchmarks medem o pipeline do AnimeService e nao o Postgres.
+ * So as consultas usadas pelos benchmarks sao atendidas, as demais lancam UnsupportedOperationException.
+ */
+final class InMemoryAnimeRepository {
+
+    private final List<Anime> animes;
+
+    private final Map<Integer, Anime> animesById;
+
+    private InMemoryAnimeRepository(List<Anime> animes) {
+        this.animes = animes;
+        this.animesById = animes.stream().collect(Collectors.toMap(Anime::getId, Function.identity()));
+    }
+
+    static AnimeRepository create(List<Anime> animes) {
+        InMemoryAnimeRepository repository = new InMemoryAnimeRepository(animes);
+        return (AnimeRepository) Proxy.newProxyInstance(AnimeRepository.class.getClassLoader(),
+                new Class<?>[]{AnimeRepository.class},
+                (proxy, method, args) -> repository.invoke(proxy, method, args));
+    }
+
+    private Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "findAll":
+                return Flux.fromIterable(animes);
+            case "findById":
+                return Mono.justOrEmpty(animesById.get((Integer) args[0]));
+            case "findByIds":
+                return Flux.fromArray((Integer[]) args[0])
+                        .map(animesById::get);
+            case "findPage":
+                return findPage((int) args[0], (int) args[1]);
+            case "search":
+                return search((String) args[0], (int) args[3], (int) args[4]);
+            case "estimateCount":
+            case "count":
+                return Mono.just((long) animes.size());
+            case "fingerprint":
+                return Mono.just(Integer.toHexString(animes.hashCode()));
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryAnimeRepository(" + animes.size() + " animes)";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private Flux<Anime> findPage(int after, int limit) {
+        return Flux.fromIterable(animes)
+                .filter(anime -> anime.getId() > after)
+                .take(limit);
+    }
+
+    private Flux<Anime> search(String term, int limit, int offset) {
+        String lowerCaseTerm = term.toLowerCase(Locale.ROOT);
+        return Flux.fromIterable(animes)
+                .filter(anime -> Objects.requireNonNull(anime.getName()).toLowerCase(Locale.ROOT).contains(lowerCaseTerm))
+                .skip(offset)
+                .take(limit);
+    }
+}
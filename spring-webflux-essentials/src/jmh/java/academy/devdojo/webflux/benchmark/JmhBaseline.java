@@ -0,0 +1,125 @@
+package academy.devdojo.webflux.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compara o resultado JSON do JMH com o baseline versionado em benchmark/jmh/baseline.json.
+ * Tempo medio e bytes alocados por operacao (gc.alloc.rate.norm) acima do limite percentual contam como regressao.
+ * Com updateBaseline=true o resultado atual passa a ser o baseline, que deve ser commitado junto com a mudanca medida.
+ * Sem o arquivo de baseline a comparacao falha. O baseline versionado foi medido com 1 CPU e JDK 11.0.21:
+ * em outra maquina de referencia, regrave com updateBaseline=true antes de comparar.
+ */
+public final class JmhBaseline {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    // Abaixo disso a diferenca de alocacao e ruido do proprio profiler
+    private static final double MIN_ALLOCATION_DELTA = 16;
+
+    private JmhBaseline() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path result = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double threshold = Double.parseDouble(args[2]) / 100;
+        boolean update = Boolean.parseBoolean(args[3]);
+
+        if (update) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        // Sem baseline nao ha comparacao, o build falha em vez de passar sem verificar regressao
+        if (!Files.exists(baseline)) {
+            System.err.println("No baseline at " + baseline + ", run with -Djmh.updateBaseline=true to create it");
+            System.exit(1);
+        }
+
+        Map<String, Score> current = read(result);
+        Map<String, Score> previous = read(baseline);
+        int regressions = 0;
+
+        System.out.printf("%-80s %14s %14s %8s %14s %14s %8s%n",
+                "Benchmark", "baseline", "current", "time", "base B/op", "B/op", "alloc");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = previous.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %8s%n", entry.getKey(), "-", after.time, "new");
+                continue;
+            }
+            double timeChange = change(before.time, after.time);
+            double allocationChange = change(before.allocation, after.allocation);
+            boolean timeRegression = timeChange > threshold;
+            boolean allocationRegression = allocationChange > threshold
+                    && after.allocation - before.allocation > MIN_ALLOCATION_DELTA;
+            if (timeRegression || allocationRegression) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+7.1f%% %14.1f %14.1f %+7.1f%%%s%n", entry.getKey(),
+                    before.time, after.time, timeChange * 100, before.allocation, after.allocation, allocationChange * 100,
+                    timeRegression || allocationRegression ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed more than " + args[2] + "% against " + baseline);
+            System.exit(1);
+        }
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? (after == 0 ? 0 : Double.POSITIVE_INFINITY) : (after - before) / before;
+    }
+
+    // Chave de cada resultado: nome do benchmark mais os @Param, o mesmo metodo com tamanhos diferentes e outra serie
+    private static Map<String, Score> read(Path path) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode benchmark : new ObjectMapper().readTree(path.toFile())) {
+            StringBuilder key = new StringBuilder(benchmark.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = benchmark.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            scores.put(key.toString(), new Score(benchmark.path("primaryMetric").path("score").asDouble(),
+                    allocation(benchmark.path("secondaryMetrics"))));
+        }
+        return scores;
+    }
+
+    // O JMH prefixa as metricas dos profilers com um ponto medio em algumas versoes
+    private static double allocation(JsonNode secondaryMetrics) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = secondaryMetrics.fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    private static final class Score {
+
+        private final double time;
+
+        private final double allocation;
+
+        private Score(double time, double allocation) {
+            this.time = time;
+            this.allocation = allocation;
+        }
+    }
+}
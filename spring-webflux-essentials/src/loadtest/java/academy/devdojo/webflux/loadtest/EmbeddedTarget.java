@@ -0,0 +1,133 @@
+package academy.devdojo.webflux.loadtest;
+
+import academy.devdojo.webflux.SpringWebfluxEssentialsApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Postgres embutido com o init.sql e a aplicacao na mesma JVM, em porta aleatoria.
+ * Servidor e gerador de carga dividem a CPU, para medir capacidade de producao use loadtest.base-url.
+ */
+@Slf4j
+class EmbeddedTarget implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+
+    private final ConfigurableApplicationContext application;
+
+    private final String baseUrl;
+
+    private EmbeddedTarget(EmbeddedPostgres postgres, ConfigurableApplicationContext application) {
+        this.postgres = postgres;
+        this.application = application;
+        this.baseUrl = "http://localhost:" + ((ReactiveWebServerApplicationContext) application).getWebServer().getPort();
+    }
+
+    static EmbeddedTarget start(LoadTestSettings settings) throws IOException, SQLException {
+        // O devtools esta no classpath de runtime e reiniciaria a aplicacao numa thread nova, sem os argumentos abaixo
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        try {
+            initialize(postgres, settings);
+            // Argumentos de linha de comando, as properties do builder sao defaults e perderiam para o application.yml
+            ConfigurableApplicationContext application = new SpringApplicationBuilder(SpringWebfluxEssentialsApplication.class)
+                    .run(
+                            // O classpath de teste vem antes e traria o application.yml e o logback-test.xml dos testes
+                            "--spring.config.location=" + applicationClasses() + "application.yml",
+                            "--logging.config=classpath:logback-spring.xml",
+                            "--server.port=0",
+                            "--spring.r2dbc.url=r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres?schema=anime",
+                            "--spring.r2dbc.username=postgres",
+                            "--spring.r2dbc.password=postgres",
+                            "--devdojo.anime.snapshot.path=" + Files.createTempDirectory("anime-snapshot").resolve("anime.snapshot"),
+                            "--logging.level.io.r2dbc.postgresql.QUERY=INFO",
+                            "--logging.level.io.r2dbc.postgresql.PARAM=INFO",
+                            "--devdojo.logging.request-sample-rate=0",
+                            // Toda a carga sai de um unico usuario, com a admissao ligada o by-id passaria do limite da role USER
+                            "--devdojo.admission.enabled=false");
+            return new EmbeddedTarget(postgres, application);
+        } catch (RuntimeException | IOException | SQLException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    private static URL applicationClasses() {
+        return SpringWebfluxEssentialsApplication.class.getProtectionDomain().getCodeSource().getLocation();
+    }
+
+    // Mesmo schema do docker-compose, mais os animes que os cenarios de leitura sorteiam
+    private static void initialize(EmbeddedPostgres postgres, LoadTestSettings settings) throws IOException, SQLException {
+        String script = new String(Files.readAllBytes(settings.getInitScript()), StandardCharsets.UTF_8);
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            for (String sql : statements(script)) {
+                if (!sql.isBlank()) {
+                    execute(connection, sql);
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO anime.anime (name) SELECT 'Anime ' || g FROM generate_series(1, ?) g")) {
+                insert.setInt(1, Math.max(settings.getAnimes() - 1, 0));
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    // Separa os comandos pelo ';', menos dentro do corpo $$ ... $$ de uma funcao
+    private static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < script.length(); i++) {
+            if (script.startsWith("$$", i)) {
+                quoted = !quoted;
+                i++;
+            } else if (script.charAt(i) == ';' && !quoted) {
+                statements.add(script.substring(start, i));
+                start = i + 1;
+            }
+        }
+        statements.add(script.substring(start));
+        return statements;
+    }
+
+    // Binarios do Postgres embutido sem o contrib nao tem pg_trgm, a busca fica sem o indice mas os cenarios nao dependem dela
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            if (!sql.contains("trgm")) {
+                throw e;
+            }
+            log.warn("Skipping trigram statement on the embedded database: {}", e.getMessage());
+        }
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    <T> T getBean(Class<T> type) {
+        return application.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        application.close();
+        postgres.close();
+    }
+}
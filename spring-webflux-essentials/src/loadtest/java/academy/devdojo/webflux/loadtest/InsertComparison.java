@@ -0,0 +1,121 @@
+package academy.devdojo.webflux.loadtest;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara no Postgres embutido o INSERT por linha do ReactiveCrudRepository.saveAll com o INSERT de varias linhas
+ * do insertAll, os dois numa transacao como no saveAll do AnimeService. Os modos se alternam a cada rodada,
+ * assim o aquecimento e o crescimento da tabela pesam igual nos dois.
+ */
+@Slf4j
+public final class InsertComparison {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private InsertComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        int[] batchSizes = StringUtils.commaDelimitedListToSet(System.getProperty("loadtest.insert.batch-sizes", "10,100,1000"))
+                .stream()
+                .mapToInt(size -> Integer.parseInt(size.trim()))
+                .sorted()
+                .toArray();
+        int warmupRounds = Integer.getInteger("loadtest.insert.warmup-rounds", 20);
+        int rounds = Integer.getInteger("loadtest.insert.rounds", 100);
+        if (rounds <= 0) {
+            throw new IllegalArgumentException("loadtest.insert.rounds must be positive");
+        }
+
+        StringBuilder report = new StringBuilder()
+                .append("# Insert comparison ").append(Instant.now()).append("\n\n")
+                .append("- target: embedded Postgres, one transaction per batch\n")
+                .append("- rounds: ").append(warmupRounds).append(" warm-up, ").append(rounds).append(" measured per mode and batch size\n");
+
+        try (EmbeddedTarget target = EmbeddedTarget.start(settings)) {
+            AnimeRepository animeRepository = target.getBean(AnimeRepository.class);
+            TransactionalOperator transactionalOperator = target.getBean(TransactionalOperator.class);
+            int chunkSize = target.getBean(AnimeProperties.class).getBatch().getChunkSize();
+
+            report.append("- multi-row chunk size: ").append(chunkSize).append("\n\n")
+                    .append("| batch | mode | p50 ms | p90 ms | p99 ms | mean ms | rows/s |\n")
+                    .append("|---:|---|---:|---:|---:|---:|---:|\n");
+
+            for (int batchSize : batchSizes) {
+                Histogram perRow = new Histogram(3);
+                Histogram multiRow = new Histogram(3);
+                for (int round = 0; round < warmupRounds + rounds; round++) {
+                    List<Anime> batch = batch(batchSize, round);
+                    Flux<Anime> perRowInsert = animeRepository.saveAll(batch)
+                            .as(transactionalOperator::transactional);
+                    Flux<Anime> multiRowInsert = Flux.fromIterable(batch)
+                            .buffer(chunkSize)
+                            .concatMap(animeRepository::insertAll)
+                            .as(transactionalOperator::transactional);
+
+                    boolean perRowFirst = round % 2 == 0;
+                    long first = time(perRowFirst ? perRowInsert : multiRowInsert, batchSize);
+                    long second = time(perRowFirst ? multiRowInsert : perRowInsert, batchSize);
+                    if (round >= warmupRounds) {
+                        perRow.recordValue(perRowFirst ? first : second);
+                        multiRow.recordValue(perRowFirst ? second : first);
+                    }
+                }
+                row(report, batchSize, "per-row", perRow);
+                row(report, batchSize, "multi-row", multiRow);
+                log.info("Measured inserts of {} animes", batchSize);
+            }
+        }
+
+        Path directory = Files.createDirectories(settings.getReport());
+        Files.write(directory.resolve("insert-comparison.md"), report.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println(report);
+        System.out.println("Report written to " + directory.toAbsolutePath());
+        System.exit(0);
+    }
+
+    private static List<Anime> batch(int size, int round) {
+        List<Anime> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(Anime.builder().name("Insert comparison " + size + "-" + round + "-" + i).build());
+        }
+        return batch;
+    }
+
+    private static long time(Flux<Anime> insert, int expected) {
+        long start = System.nanoTime();
+        Long inserted = insert.count().block();
+        long elapsed = System.nanoTime() - start;
+        if (inserted == null || inserted != expected) {
+            throw new IllegalStateException("Expected " + expected + " animes inserted, got " + inserted);
+        }
+        return elapsed;
+    }
+
+    private static void row(StringBuilder report, int batchSize, String mode, Histogram histogram) {
+        report.append(String.format("| %d | %s | %.2f | %.2f | %.2f | %.2f | %.0f |%n",
+                batchSize, mode,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                histogram.getMean() / NANOS_PER_MILLI,
+                batchSize / (histogram.getMean() / TimeUnit.SECONDS.toNanos(1))));
+    }
+}
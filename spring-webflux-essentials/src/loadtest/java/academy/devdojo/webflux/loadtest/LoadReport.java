@@ -0,0 +1,74 @@
+package academy.devdojo.webflux.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escreve report.md com vazao e percentis por cenario e um .hgrm por cenario com a distribuicao completa,
+ * no formato aceito pelo HdrHistogram plotter.
+ */
+final class LoadReport {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private LoadReport() {
+    }
+
+    static void write(LoadTestSettings settings, Map<LoadScenario, ScenarioResult> results, long measuredNanos) throws IOException {
+        Path directory = Files.createDirectories(settings.getReport());
+        double seconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        Histogram total = new Histogram(3);
+        StringBuilder report = new StringBuilder()
+                .append("# Load test ").append(Instant.now()).append("\n\n")
+                .append("- target: ").append(settings.isEmbedded() ? "embedded application and Postgres" : settings.getBaseUrl()).append('\n')
+                .append("- arrival rate: ").append(settings.getRate()).append(" req/s, warm-up ").append(settings.getWarmup())
+                .append(", measured ").append(settings.getDuration()).append('\n')
+                .append("- mix: ").append(settings.getMix()).append("\n\n")
+                .append("| scenario | requests | req/s | p50 ms | p99 ms | p99.9 ms | max ms | unexpected status | errors | dropped | statuses |\n")
+                .append("|---|---:|---:|---:|---:|---:|---:|---:|---:|---:|---|\n");
+
+        for (ScenarioResult result : results.values()) {
+            Histogram histogram = result.takeHistogram();
+            total.add(histogram);
+            row(report, result.getScenario().getId(), histogram, seconds, result.unexpected(), result.errors(),
+                    result.dropped(), result.statuses().toString());
+            writeDistribution(directory.resolve(result.getScenario().getId() + ".hgrm"), histogram);
+        }
+        row(report, "total", total, seconds,
+                results.values().stream().mapToLong(ScenarioResult::unexpected).sum(),
+                results.values().stream().mapToLong(ScenarioResult::errors).sum(),
+                results.values().stream().mapToLong(ScenarioResult::dropped).sum(), "");
+        writeDistribution(directory.resolve("total.hgrm"), total);
+
+        Files.write(directory.resolve("report.md"), report.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println(report);
+        System.out.println("Report written to " + directory.toAbsolutePath());
+    }
+
+    private static void row(StringBuilder report, String scenario, Histogram histogram, double seconds,
+                            long unexpected, long errors, long dropped, String statuses) {
+        report.append(String.format("| %s | %d | %.1f | %.2f | %.2f | %.2f | %.2f | %d | %d | %d | %s |%n",
+                scenario, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+                unexpected, errors, dropped, statuses));
+    }
+
+    private static void writeDistribution(Path path, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(path), false, StandardCharsets.UTF_8.name())) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+}
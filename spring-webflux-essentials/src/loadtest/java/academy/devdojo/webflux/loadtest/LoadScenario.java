@@ -0,0 +1,105 @@
+package academy.devdojo.webflux.loadtest;
+
+import academy.devdojo.webflux.domain.Anime;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tipos de requisicao do teste de carga, cada um com o status que a aplicacao deve responder.
+ */
+enum LoadScenario {
+
+    BY_ID("by-id", 200) {
+        @Override
+        Mono<Integer> execute(WebClient client, int animes) {
+            return exchange(client.get()
+                    .uri("/animes/{id}", ThreadLocalRandom.current().nextInt(animes) + 1)
+                    .header(HttpHeaders.AUTHORIZATION, USER));
+        }
+    },
+    LIST("list", 200) {
+        @Override
+        Mono<Integer> execute(WebClient client, int animes) {
+            return exchange(client.get()
+                    .uri("/animes/page?size=20")
+                    .header(HttpHeaders.AUTHORIZATION, ADMIN));
+        }
+    },
+    BATCH_SAVE("batch-save", 201) {
+        @Override
+        Mono<Integer> execute(WebClient client, int animes) {
+            List<Anime> batch = new ArrayList<>(BATCH_SIZE);
+            long suffix = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(Anime.builder().name("Load test " + suffix + "-" + i).build());
+            }
+            return exchange(client.post()
+                    .uri("/animes/batch")
+                    .header(HttpHeaders.AUTHORIZATION, ADMIN)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(batch));
+        }
+    },
+    AUTH_FAILURE("auth-failure", 401) {
+        @Override
+        Mono<Integer> execute(WebClient client, int animes) {
+            return exchange(client.get()
+                    .uri("/animes/{id}", 1)
+                    .header(HttpHeaders.AUTHORIZATION, WRONG_PASSWORD));
+        }
+    };
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final String USER = basic("user", "devdojo");
+
+    private static final String ADMIN = basic("nelson", "devdojo");
+
+    private static final String WRONG_PASSWORD = basic("user", "wrong-password");
+
+    private final String id;
+
+    private final int expectedStatus;
+
+    LoadScenario(String id, int expectedStatus) {
+        this.id = id;
+        this.expectedStatus = expectedStatus;
+    }
+
+    /**
+     * Dispara a requisicao e devolve o status da resposta, o corpo e descartado sem ser decodificado
+     */
+    abstract Mono<Integer> execute(WebClient client, int animes);
+
+    String getId() {
+        return id;
+    }
+
+    int getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    static LoadScenario fromId(String id) {
+        for (LoadScenario scenario : values()) {
+            if (scenario.id.equals(id)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load scenario " + id);
+    }
+
+    private static Mono<Integer> exchange(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode()));
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + HttpHeaders.encodeBasicAuth(username, password, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package academy.devdojo.webflux.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de carga em modelo aberto: as requisicoes chegam em taxa fixa, independente de quanto o servidor demora,
+ * e o mix de cenarios e sorteado pelos pesos de loadtest.mix. Sem loadtest.base-url sobe o Postgres embutido e a aplicacao.
+ * Os cenarios usam sempre os mesmos usuarios: com loadtest.base-url o alvo precisa de devdojo.admission.enabled=false,
+ * ou de limites acima da taxa, senao o que se mede sao os 429.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        Map<LoadScenario, ScenarioResult> results;
+        long measuredNanos;
+
+        if (settings.isEmbedded()) {
+            try (EmbeddedTarget target = EmbeddedTarget.start(settings)) {
+                results = new EnumMap<>(LoadScenario.class);
+                measuredNanos = run(settings, target.getBaseUrl(), results);
+            }
+        } else {
+            results = new EnumMap<>(LoadScenario.class);
+            measuredNanos = run(settings, settings.getBaseUrl(), results);
+        }
+
+        LoadReport.write(settings, results, measuredNanos);
+        System.exit(0);
+    }
+
+    private static long run(LoadTestSettings settings, String baseUrl, Map<LoadScenario, ScenarioResult> results) {
+        settings.getMix().keySet().forEach(scenario -> results.put(scenario, new ScenarioResult(scenario)));
+        LoadScenario[] picks = weightedPicks(settings.getMix());
+
+        // Loop e pool proprios, o cliente nao disputa as threads do servidor quando os dois estao na mesma JVM
+        LoopResources loops = LoopResources.create("loadtest", Math.max(2, Runtime.getRuntime().availableProcessors() / 2), true);
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)
+                        .runOn(loops)
+                        .responseTimeout(DRAIN_TIMEOUT)))
+                .build();
+
+        try {
+            log.info("Load test against {} at {} req/s, warm-up {}, measuring {}, mix {}",
+                    baseUrl, settings.getRate(), settings.getWarmup(), settings.getDuration(), settings.getMix());
+            return drive(settings, client, picks, results);
+        } finally {
+            connections.disposeLater().block(DRAIN_TIMEOUT);
+            loops.disposeLater().block(DRAIN_TIMEOUT);
+        }
+    }
+
+    private static long drive(LoadTestSettings settings, WebClient client, LoadScenario[] picks,
+                              Map<LoadScenario, ScenarioResult> results) {
+        long interval = Math.max(TimeUnit.SECONDS.toNanos(1) / settings.getRate(), 1);
+        long start = System.nanoTime();
+        long measureFrom = start + settings.getWarmup().toNanos();
+        long end = measureFrom + settings.getDuration().toNanos();
+        AtomicInteger inFlight = new AtomicInteger();
+
+        for (long intended = start; intended < end; intended += interval) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadScenario scenario = picks[ThreadLocalRandom.current().nextInt(picks.length)];
+            ScenarioResult result = intended >= measureFrom ? results.get(scenario) : null;
+
+            if (inFlight.get() >= settings.getMaxInFlight()) {
+                if (result != null) {
+                    result.recordDropped();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long scheduled = intended;
+            scenario.execute(client, settings.getAnimes())
+                    .doFinally(signal -> inFlight.decrementAndGet())
+                    .subscribe(
+                            status -> {
+                                if (result != null) {
+                                    result.record(System.nanoTime() - scheduled, status);
+                                }
+                            },
+                            error -> {
+                                if (result != null) {
+                                    result.recordError(System.nanoTime() - scheduled);
+                                }
+                            });
+        }
+
+        long drainUntil = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        return end - measureFrom;
+    }
+
+    // Um cenario por unidade de peso, sortear um indice respeita as proporcoes do mix
+    private static LoadScenario[] weightedPicks(Map<LoadScenario, Integer> mix) {
+        LoadScenario[] picks = new LoadScenario[mix.values().stream().mapToInt(Integer::intValue).sum()];
+        int position = 0;
+        for (Map.Entry<LoadScenario, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                picks[position++] = entry.getKey();
+            }
+        }
+        return picks;
+    }
+}
@@ -0,0 +1,117 @@
+package academy.devdojo.webflux.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Parametros do teste de carga, lidos das propriedades de sistema loadtest.* passadas pelo profile loadtest do pom.
+ */
+class LoadTestSettings {
+
+    private final String baseUrl;
+
+    private final int rate;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    private final Map<LoadScenario, Integer> mix;
+
+    private final int animes;
+
+    private final int maxInFlight;
+
+    private final int maxConnections;
+
+    private final Path report;
+
+    private final Path initScript;
+
+    private LoadTestSettings() {
+        this.baseUrl = System.getProperty("loadtest.base-url", "");
+        this.rate = Integer.getInteger("loadtest.rate", 200);
+        this.warmup = DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s"));
+        this.duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s"));
+        this.mix = parseMix(System.getProperty("loadtest.mix", "by-id:70,list:15,batch-save:5,auth-failure:10"));
+        this.animes = Integer.getInteger("loadtest.animes", 1000);
+        this.maxInFlight = Integer.getInteger("loadtest.max-in-flight", 2000);
+        this.maxConnections = Integer.getInteger("loadtest.max-connections", 500);
+        this.report = Paths.get(System.getProperty("loadtest.report", "target/loadtest"));
+        this.initScript = Paths.get(System.getProperty("loadtest.init-script", "init.sql"));
+        if (rate <= 0) {
+            throw new IllegalArgumentException("loadtest.rate must be positive");
+        }
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    // Formato cenario:peso separado por virgulas, ex: by-id:70,list:15,batch-save:5,auth-failure:10
+    private static Map<LoadScenario, Integer> parseMix(String mix) {
+        Map<LoadScenario, Integer> weights = new EnumMap<>(LoadScenario.class);
+        for (String entry : StringUtils.commaDelimitedListToStringArray(mix)) {
+            String[] scenarioAndWeight = entry.trim().split(":");
+            int weight = Integer.parseInt(scenarioAndWeight[1].trim());
+            if (weight > 0) {
+                weights.put(LoadScenario.fromId(scenarioAndWeight[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no scenario with positive weight: " + mix);
+        }
+        return Collections.unmodifiableMap(weights);
+    }
+
+    boolean isEmbedded() {
+        return !StringUtils.hasText(baseUrl);
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Map<LoadScenario, Integer> getMix() {
+        return mix;
+    }
+
+    int getAnimes() {
+        return animes;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    Path getReport() {
+        return report;
+    }
+
+    Path getInitScript() {
+        return initScript;
+    }
+}
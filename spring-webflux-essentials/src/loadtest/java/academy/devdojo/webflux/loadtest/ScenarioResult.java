@@ -0,0 +1,76 @@
+package academy.devdojo.webflux.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias e status de um cenario, gravados pelas threads do cliente sem bloqueio.
+ * A latencia conta a partir do instante em que a requisicao deveria ter saido, nao de quando saiu,
+ * assim um servidor lento nao esconde a fila que ele mesmo criou.
+ */
+class ScenarioResult {
+
+    private final LoadScenario scenario;
+
+    private final Recorder latencies = new Recorder(3);
+
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    ScenarioResult(LoadScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    void record(long latencyNanos, int status) {
+        latencies.recordValue(latencyNanos);
+        statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    void recordError(long latencyNanos) {
+        latencies.recordValue(latencyNanos);
+        errors.increment();
+    }
+
+    // O cliente ja tinha o maximo de requisicoes em voo, a chegada nao aconteceu
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    LoadScenario getScenario() {
+        return scenario;
+    }
+
+    // Cada chamada devolve so o que foi gravado desde a anterior
+    Histogram takeHistogram() {
+        return latencies.getIntervalHistogram();
+    }
+
+    Map<Integer, Long> statuses() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    long unexpected() {
+        return statuses().entrySet().stream()
+                .filter(entry -> entry.getKey() != scenario.getExpectedStatus())
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,91 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escreve Anime em application/cbor. O Jackson2CborEncoder nao escreve Flux, entao os animes saem num array CBOR
+ * de tamanho indefinido: o marcador de inicio, os animes em lotes por buffer conforme chegam e o marcador de fim.
+ * Do outro lado e lido como List de Anime, igual a um array de tamanho fixo.
+ * Restrito ao Anime para nao passar na frente do JSON na negociacao dos demais tipos.
+ */
+public class AnimeCborEncoder extends Jackson2CborEncoder {
+
+    static final int ANIMES_PER_BUFFER = 64;
+
+    // Major type 4 (array) com tamanho indefinido e o "break" que o fecha, RFC 7049 secao 2.2.1
+    private static final byte START_INDEFINITE_ARRAY = (byte) 0x9F;
+
+    private static final byte BREAK = (byte) 0xFF;
+
+    // Tres campos com nomes curtos e inteiros, o nome entra com o tamanho real
+    private static final int ESTIMATED_SIZE = 32;
+
+    private final ObjectWriter writer;
+
+    public AnimeCborEncoder(ObjectMapper mapper) {
+        // Sem o mime type explicito o construtor assume os tipos JSON
+        super(mapper, MediaType.APPLICATION_CBOR);
+        this.writer = mapper.writerFor(Anime.class);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return Anime.class.equals(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                    .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+        return Flux.concat(
+                Mono.fromCallable(() -> bufferFactory.allocateBuffer(1).write(START_INDEFINITE_ARRAY)),
+                Flux.from(inputStream)
+                        .cast(Anime.class)
+                        .buffer(ANIMES_PER_BUFFER)
+                        .map(animes -> encodeChunk(animes, bufferFactory)),
+                Mono.fromCallable(() -> bufferFactory.allocateBuffer(1).write(BREAK)));
+    }
+
+    private DataBuffer encodeChunk(List<Anime> animes, DataBufferFactory bufferFactory) {
+        int capacity = 0;
+        for (Anime anime : animes) {
+            capacity += ESTIMATED_SIZE + (anime.getName() == null ? 0 : anime.getName().length());
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+        // Os itens de um array indefinido sao valores CBOR completos em sequencia, um generator escreve o lote todo
+        try (OutputStream out = buffer.asOutputStream();
+             JsonGenerator generator = getObjectMapper().getFactory().createGenerator(out)) {
+            for (Anime anime : animes) {
+                writer.writeValue(generator, anime);
+            }
+            return buffer;
+        } catch (IOException | RuntimeException ex) {
+            DataBufferUtils.release(buffer);
+            throw new EncodingException("Could not write CBOR: " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Escreve Anime em JSON direto nos DataBuffers da resposta, sem reflexao nem String ou byte[] intermediarios.
+ * A saida e identica a do Jackson2JsonEncoder: campos id, name e version nessa ordem e nulls escritos como null.
+ * Qualquer outro tipo, ou charset diferente de UTF-8, continua no Jackson. Se o ObjectMapper configurado
+ * (spring.jackson.*) escreve o Anime de outro jeito, o encoder nao aceita nada e tudo fica no Jackson.
+ */
+@Slf4j
+public class AnimeJsonEncoder implements HttpMessageEncoder<Anime> {
+
+    static final int ANIMES_PER_BUFFER = 64;
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON);
+
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON);
+
+    private static final byte[] ID_FIELD = utf8("{\"id\":");
+
+    private static final byte[] NAME_FIELD = utf8(",\"name\":");
+
+    private static final byte[] VERSION_FIELD = utf8(",\"version\":");
+
+    private static final byte[] NULL = utf8("null");
+
+    private static final byte QUOTE = '"';
+
+    private static final byte END_OBJECT = '}';
+
+    private static final byte START_ARRAY = '[';
+
+    private static final byte SEPARATOR = ',';
+
+    private static final byte END_ARRAY = ']';
+
+    private static final byte NEW_LINE = '\n';
+
+    private static final byte[] HEX = utf8("0123456789ABCDEF");
+
+    // Chaves, nomes dos campos e os dois inteiros, o nome entra com o tamanho real
+    private static final int ESTIMATED_SIZE = 48;
+
+    // Nulls, escapes e caracteres fora do BMP, o que inclusao, naming strategy ou indentacao mudariam
+    private static final List<Anime> PROBES = List.of(
+            new Anime(1, "Naruto", 0),
+            new Anime(Integer.MIN_VALUE, "\"Kimetsu\" \\ 鬼滅の刃 \uD83D\uDE00\n\u0001", Integer.MAX_VALUE),
+            new Anime(null, null, null));
+
+    private final boolean enabled;
+
+    public AnimeJsonEncoder(ObjectMapper objectMapper) {
+        this.enabled = writesLike(objectMapper);
+        if (!enabled) {
+            log.info("Configured ObjectMapper writes Anime differently, Anime JSON stays on Jackson");
+        }
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        if (!enabled || !Anime.class.equals(elementType.toClass())) {
+            return false;
+        }
+        if (mimeType == null) {
+            return true;
+        }
+        if (mimeType.getCharset() != null && !StandardCharsets.UTF_8.equals(mimeType.getCharset())) {
+            return false;
+        }
+        return MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Anime> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                    .map(anime -> encodeValue(anime, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+        if (isStreaming(mimeType)) {
+            // Cada anime sai no proprio buffer para o cliente ler linha a linha assim que chega
+            return Flux.from(inputStream).map(anime -> {
+                DataBuffer buffer = bufferFactory.allocateBuffer(estimateSize(anime));
+                return writeOrRelease(buffer, () -> writeAnime(buffer, anime).write(NEW_LINE));
+            });
+        }
+        // O array so tem uso para o cliente quando completo, entao os animes saem em lotes por buffer
+        return Flux.<Anime>from(inputStream)
+                .buffer(ANIMES_PER_BUFFER)
+                .<DataBuffer>index((index, animes) -> encodeArrayChunk(animes, index == 0, bufferFactory))
+                .switchIfEmpty(Mono.<DataBuffer>fromCallable(() -> bufferFactory.allocateBuffer(1).write(START_ARRAY)))
+                .concatWith(Mono.<DataBuffer>fromCallable(() -> bufferFactory.allocateBuffer(1).write(END_ARRAY)));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Anime anime, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(estimateSize(anime));
+        return writeOrRelease(buffer, () -> writeAnime(buffer, anime));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return STREAMING_MEDIA_TYPES;
+    }
+
+    private DataBuffer encodeArrayChunk(List<Anime> animes, boolean first, DataBufferFactory bufferFactory) {
+        int capacity = 0;
+        for (Anime anime : animes) {
+            capacity += estimateSize(anime) + 1;
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+        return writeOrRelease(buffer, () -> {
+            for (int i = 0; i < animes.size(); i++) {
+                buffer.write(first && i == 0 ? START_ARRAY : SEPARATOR);
+                writeAnime(buffer, animes.get(i));
+            }
+            return buffer;
+        });
+    }
+
+    private static DataBuffer writeAnime(DataBuffer buffer, Anime anime) {
+        buffer.write(ID_FIELD);
+        writeInteger(buffer, anime.getId());
+        buffer.write(NAME_FIELD);
+        writeString(buffer, anime.getName());
+        buffer.write(VERSION_FIELD);
+        writeInteger(buffer, anime.getVersion());
+        return buffer.write(END_OBJECT);
+    }
+
+    private static void writeInteger(DataBuffer buffer, @Nullable Integer value) {
+        if (value == null) {
+            buffer.write(NULL);
+            return;
+        }
+        // long evita o overflow ao inverter o sinal de Integer.MIN_VALUE
+        long number = value;
+        if (number < 0) {
+            buffer.write((byte) '-');
+            number = -number;
+        }
+        long divisor = 1;
+        while (divisor * 10 <= number) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + number / divisor % 10));
+        }
+    }
+
+    private static void writeString(DataBuffer buffer, @Nullable String value) {
+        if (value == null) {
+            buffer.write(NULL);
+            return;
+        }
+        buffer.write(QUOTE);
+        if (needsEscaping(value)) {
+            writeEscaped(buffer, value);
+        } else {
+            buffer.write(value, StandardCharsets.UTF_8);
+        }
+        buffer.write(QUOTE);
+    }
+
+    /**
+     * Raro em nomes de anime, o escape fica com o Jackson para sair igual ao encoder padrao.
+     * So os surrogates sao escritos aqui: o UTF8JsonGenerator escapa cada um em hexadecimal, o JsonStringEncoder nao
+     */
+    private static void writeEscaped(DataBuffer buffer, String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isSurrogate(c)) {
+                buffer.write(JsonStringEncoder.getInstance().quoteAsUTF8(value.substring(start, i)));
+                buffer.write(new byte[]{'\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]});
+                start = i + 1;
+            }
+        }
+        buffer.write(JsonStringEncoder.getInstance().quoteAsUTF8(value.substring(start)));
+    }
+
+    private static boolean needsEscaping(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\' || Character.isSurrogate(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean writesLike(ObjectMapper objectMapper) {
+        DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+        try {
+            for (Anime probe : PROBES) {
+                DataBuffer buffer = writeAnime(bufferFactory.allocateBuffer(estimateSize(probe)), probe);
+                byte[] written = new byte[buffer.readableByteCount()];
+                buffer.read(written);
+                if (!Arrays.equals(objectMapper.writeValueAsBytes(probe), written)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (JsonProcessingException ex) {
+            return false;
+        }
+    }
+
+    private static int estimateSize(Anime anime) {
+        return ESTIMATED_SIZE + (anime.getName() == null ? 0 : anime.getName().length());
+    }
+
+    private static boolean isStreaming(@Nullable MimeType mimeType) {
+        return mimeType != null && STREAMING_MEDIA_TYPES.stream().anyMatch(streaming -> streaming.equalsTypeAndSubtype(mimeType));
+    }
+
+    private static DataBuffer writeOrRelease(DataBuffer buffer, Supplier<DataBuffer> writer) {
+        try {
+            return writer.get();
+        } catch (RuntimeException ex) {
+            DataBufferUtils.release(buffer);
+            throw ex;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
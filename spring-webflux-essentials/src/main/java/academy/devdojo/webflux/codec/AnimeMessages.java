@@ -0,0 +1,37 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.proto.AnimeMessage;
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.StringValue;
+
+/**
+ * Conversao entre o Anime do dominio e a mensagem gerada do anime.proto, mantendo os null como campos ausentes.
+ */
+public final class AnimeMessages {
+
+    private AnimeMessages() {
+    }
+
+    public static AnimeMessage toMessage(Anime anime) {
+        AnimeMessage.Builder builder = AnimeMessage.newBuilder();
+        if (anime.getId() != null) {
+            builder.setId(Int32Value.of(anime.getId()));
+        }
+        if (anime.getName() != null) {
+            builder.setName(StringValue.of(anime.getName()));
+        }
+        if (anime.getVersion() != null) {
+            builder.setVersion(Int32Value.of(anime.getVersion()));
+        }
+        return builder.build();
+    }
+
+    public static Anime toAnime(AnimeMessage message) {
+        return Anime.builder()
+                .id(message.hasId() ? message.getId().getValue() : null)
+                .name(message.hasName() ? message.getName().getValue() : null)
+                .version(message.hasVersion() ? message.getVersion().getValue() : null)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.proto.AnimeMessage;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.protobuf.ProtobufDecoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Le Anime de application/x-protobuf. Um corpo Anime e uma mensagem simples, ja Flux e List de Anime
+ * sao lidos como mensagens com o tamanho como prefixo, o mesmo formato escrito pelo AnimeProtobufEncoder.
+ */
+public class AnimeProtobufDecoder implements Decoder<Object> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(AnimeProtobufEncoder.APPLICATION_PROTOBUF);
+
+    private final ProtobufDecoder delegate = new ProtobufDecoder();
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return (isAnime(elementType) || isAnimeList(elementType))
+                && (mimeType == null || AnimeProtobufEncoder.APPLICATION_PROTOBUF.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                               @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return delegate.decode(inputStream, AnimeProtobufEncoder.MESSAGE_TYPE, mimeType, hints)
+                .map(message -> (Object) AnimeMessages.toAnime((AnimeMessage) message));
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                     @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        if (isAnimeList(elementType)) {
+            return decode(inputStream, elementType, mimeType, hints).collectList().cast(Object.class);
+        }
+        return delegate.decodeToMono(inputStream, AnimeProtobufEncoder.MESSAGE_TYPE, mimeType, hints)
+                .map(message -> (Object) AnimeMessages.toAnime((AnimeMessage) message));
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    private static boolean isAnime(ResolvableType type) {
+        return Anime.class.equals(type.toClass());
+    }
+
+    private static boolean isAnimeList(ResolvableType type) {
+        return List.class.isAssignableFrom(type.toClass()) && isAnime(type.getGeneric(0));
+    }
+}
@@ -0,0 +1,66 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.proto.AnimeMessage;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.codec.protobuf.ProtobufEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escreve Anime como AnimeMessage em application/x-protobuf. Um Mono vira uma mensagem simples e um Flux
+ * vira mensagens com o tamanho como prefixo (writeDelimitedTo), que o cliente le com parseDelimitedFrom.
+ */
+public class AnimeProtobufEncoder implements HttpMessageEncoder<Anime> {
+
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf(APPLICATION_PROTOBUF_VALUE);
+
+    static final ResolvableType MESSAGE_TYPE = ResolvableType.forClass(AnimeMessage.class);
+
+    private static final List<MimeType> MIME_TYPES = List.of(APPLICATION_PROTOBUF);
+
+    private final ProtobufEncoder delegate = new ProtobufEncoder();
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return Anime.class.equals(elementType.toClass())
+                && (mimeType == null || APPLICATION_PROTOBUF.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Anime> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        Publisher<AnimeMessage> messages = inputStream instanceof Mono
+                ? Mono.from(inputStream).map(AnimeMessages::toMessage)
+                : Flux.from(inputStream).map(AnimeMessages::toMessage);
+        return delegate.encode(messages, bufferFactory, MESSAGE_TYPE, mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Anime anime, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return delegate.encodeValue(AnimeMessages.toMessage(anime), bufferFactory, MESSAGE_TYPE, mimeType, hints);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return delegate.getStreamingMediaTypes();
+    }
+}
@@ -0,0 +1,60 @@
+package academy.devdojo.webflux.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Pares usuario e rota acompanhados ao mesmo tempo, os menos usados saem primeiro.
+     */
+    private long maximumKeys = 100_000;
+
+    /**
+     * Tempo sem requisicoes depois do qual o estado de um par usuario e rota e descartado.
+     */
+    private Duration idleTtl = Duration.ofMinutes(10);
+
+    /**
+     * Limites por role, na ordem de prioridade: vale o primeiro que o usuario tiver.
+     */
+    private Map<String, Limits> roles = defaultRoles();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limits {
+
+        /**
+         * Taxa sustentada de requisicoes por segundo para cada usuario em cada rota.
+         */
+        private double requestsPerSecond;
+
+        /**
+         * Requisicoes aceitas de uma vez acima da taxa sustentada.
+         */
+        private int burst;
+
+        /**
+         * Requisicoes do mesmo usuario na mesma rota em andamento ao mesmo tempo.
+         */
+        private int maxConcurrent;
+    }
+
+    private static Map<String, Limits> defaultRoles() {
+        Map<String, Limits> roles = new LinkedHashMap<>();
+        roles.put("ADMIN", new Limits(200, 400, 40));
+        roles.put("USER", new Limits(50, 100, 10));
+        return roles;
+    }
+}
@@ -0,0 +1,154 @@
+package academy.devdojo.webflux.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.anime")
+public class AnimeProperties {
+
+    private Stream stream = new Stream();
+
+    private Batch batch = new Batch();
+
+    private Cache cache = new Cache();
+
+    private Loader loader = new Loader();
+
+    private Suggest suggest = new Suggest();
+
+    private Changes changes = new Changes();
+
+    private Snapshot snapshot = new Snapshot();
+
+    @Data
+    public static class Stream {
+
+        /**
+         * Linhas buscadas por round trip no cursor do Postgres e demanda maxima repassada ao banco.
+         */
+        private int fetchSize = 256;
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Quantidade de animes gravados por INSERT multi-row.
+         */
+        private int chunkSize = 500;
+
+        private TransactionScope transactionScope = TransactionScope.REQUEST;
+
+        /**
+         * Chunks aguardando gravacao na ingestao em streaming, limita as linhas em memoria.
+         */
+        private int maxInFlightChunks = 2;
+
+        /**
+         * Tempo maximo que um chunk incompleto da ingestao espera por mais linhas antes de ser gravado.
+         */
+        private Duration chunkWindow = Duration.ofMillis(200);
+    }
+
+    @Data
+    public static class Cache {
+
+        private long maximumSize = 10_000;
+
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Tempo que um id inexistente fica em cache respondendo 404 sem ir ao banco.
+         */
+        private Duration negativeTtl = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Loader {
+
+        /**
+         * Agrupa buscas por id concorrentes em um unico SELECT ... WHERE id = ANY(:ids).
+         */
+        private boolean enabled = true;
+
+        private Duration window = Duration.ofNanos(500_000);
+
+        private int maxBatchSize = 100;
+    }
+
+    @Data
+    public static class Suggest {
+
+        private int maxResults = 10;
+
+        /**
+         * Escritas acumuladas fora dos arrays ordenados antes de junta-las em uma nova base.
+         */
+        private int compactionThreshold = 4096;
+    }
+
+    @Data
+    public static class Changes {
+
+        /**
+         * Ultimas mudancas guardadas para reenviar a quem reconecta com Last-Event-ID.
+         */
+        private int replaySize = 1024;
+
+        /**
+         * Mudancas enfileiradas por assinante, acima disso o assinante lento e desconectado e retoma pelo Last-Event-ID.
+         */
+        private int subscriberBuffer = 256;
+
+        private Duration heartbeat = Duration.ofSeconds(15);
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * Copia local do catalogo atualizada por LISTEN/NOTIFY, depende do trigger de migrations/003_anime_notify.sql.
+         */
+        private boolean enabled = false;
+
+        private String path = "data/anime.snapshot";
+
+        /**
+         * De onde findById e findAll leem quando a copia esta pronta.
+         */
+        private ReadSource reads = ReadSource.DATABASE;
+
+        /**
+         * Idade maxima do arquivo deixado pela execucao anterior para servir leituras antes da primeira recarga.
+         */
+        private Duration maxAge = Duration.ofMinutes(15);
+
+        /**
+         * Mudancas mantidas em memoria antes de gravar um arquivo novo.
+         */
+        private int compactionThreshold = 4096;
+
+        /**
+         * Notificacoes juntadas em um unico SELECT ... WHERE id = ANY(:ids).
+         */
+        private int deltaBatchSize = 100;
+
+        private Duration deltaWindow = Duration.ofMillis(20);
+
+        /**
+         * Primeira espera para reconectar o LISTEN, dobra a cada falha ate 30s.
+         */
+        private Duration reconnectBackoff = Duration.ofSeconds(1);
+    }
+
+    public enum TransactionScope {
+        REQUEST, CHUNK
+    }
+
+    public enum ReadSource {
+        DATABASE, SNAPSHOT
+    }
+}
@@ -0,0 +1,55 @@
+package academy.devdojo.webflux.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.auth")
+public class AuthProperties {
+
+    private CredentialCache credentialCache = new CredentialCache();
+
+    private Token token = new Token();
+
+    private PasswordVerification passwordVerification = new PasswordVerification();
+
+    @Data
+    public static class CredentialCache {
+
+        private long maximumSize = 10_000;
+
+        /**
+         * Por quanto tempo credenciais ja verificadas dispensam a consulta ao banco e o bcrypt.
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Token {
+
+        /**
+         * Segredo HMAC compartilhado entre as instancias, sem ele cada instancia gera o seu e os tokens nao circulam.
+         */
+        private String secret;
+
+        private Duration ttl = Duration.ofMinutes(15);
+    }
+
+    @Data
+    public static class PasswordVerification {
+
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Verificacoes aguardando thread, acima disso a requisicao recebe 503 imediatamente.
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * Custo do bcrypt, hashes gravados com custo menor sao recodificados no proximo login.
+         */
+        private int bcryptStrength = 10;
+    }
+}
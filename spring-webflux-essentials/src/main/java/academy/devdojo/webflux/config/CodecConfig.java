@@ -0,0 +1,41 @@
+package academy.devdojo.webflux.config;
+
+import academy.devdojo.webflux.codec.AnimeCborEncoder;
+import academy.devdojo.webflux.codec.AnimeJsonEncoder;
+import academy.devdojo.webflux.codec.AnimeProtobufDecoder;
+import academy.devdojo.webflux.codec.AnimeProtobufEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Codecs customizados entram antes dos padroes, entao Anime em application/json e NDJSON sai pelo AnimeJsonEncoder
+ * e o restante (AnimePage, erros, SSE) continua no Jackson. O AnimeJsonEncoder recebe o ObjectMapper do Boot
+ * para respeitar o spring.jackson.*.
+ * Protobuf e CBOR atendem quem pede pelo Accept ou Content-Type, o JSON fica registrado primeiro para continuar
+ * sendo a resposta de quem aceita qualquer tipo.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class CodecConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        configurer.customCodecs().register(new AnimeJsonEncoder(objectMapper));
+        configurer.customCodecs().register(new AnimeProtobufEncoder());
+        configurer.customCodecs().register(new AnimeProtobufDecoder());
+        configurer.customCodecs().register(new AnimeCborEncoder(cborMapper));
+        configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+    }
+}
@@ -0,0 +1,43 @@
+package academy.devdojo.webflux.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.r2dbc")
+public class DatabaseProperties {
+
+    private Pool pool = new Pool();
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Conexoes abertas na subida, ja validadas quando warmUp esta ligado.
+         */
+        private int initialSize = 5;
+
+        /**
+         * Teto de conexoes desta instancia, a soma entre as instancias deve ficar abaixo do max_connections do Postgres.
+         */
+        private int maxSize = 20;
+
+        /**
+         * Espera maxima por uma conexao livre antes de falhar a requisicao.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(2);
+
+        private Duration maxIdleTime = Duration.ofMinutes(30);
+
+        /**
+         * Vida maxima de uma conexao, vazio para nao reciclar.
+         */
+        private Duration maxLifeTime;
+
+        private String validationQuery = "SELECT 1";
+
+        private boolean warmUp = true;
+    }
+}
@@ -0,0 +1,33 @@
+package academy.devdojo.webflux.config;
+
+import academy.devdojo.webflux.proto.AnimeServiceGrpc;
+import academy.devdojo.webflux.security.GrpcTokenAuthenticationInterceptor;
+import academy.devdojo.webflux.security.TokenService;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.reflection.v1alpha.ServerReflectionGrpc;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servidor gRPC do net.devh (grpc.server.*), com as mesmas roles que o SecurityConfig exige nas rotas /animes.
+ * So health e reflection respondem sem token, qualquer outro servico exige autenticacao como o anyExchange do HTTP.
+ */
+@Configuration
+public class GrpcConfig {
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public GrpcTokenAuthenticationInterceptor grpcTokenAuthenticationInterceptor(TokenService tokenService,
+                                                                               MeterRegistry meterRegistry) {
+        return new GrpcTokenAuthenticationInterceptor(tokenService, meterRegistry, Map.of(
+                AnimeServiceGrpc.getGetMethod().getFullMethodName(), "USER",
+                AnimeServiceGrpc.getListMethod().getFullMethodName(), "ADMIN",
+                AnimeServiceGrpc.getBulkInsertMethod().getFullMethodName(), "ADMIN"),
+                Set.of(HealthGrpc.SERVICE_NAME, ServerReflectionGrpc.SERVICE_NAME));
+    }
+}
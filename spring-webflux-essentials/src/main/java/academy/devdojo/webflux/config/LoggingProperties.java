@@ -0,0 +1,24 @@
+package academy.devdojo.webflux.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "devdojo.logging")
+public class LoggingProperties {
+
+    /**
+     * Header que traz o id de correlacao do cliente e que devolve o id usado na resposta.
+     */
+    private String correlationHeader = "X-Correlation-Id";
+
+    /**
+     * Fracao das requisicoes registradas no log de acesso, entre 0 e 1.
+     */
+    private double requestSampleRate = 0.01;
+
+    /**
+     * Fracao das consultas registradas pelos loggers QUERY e PARAM do driver, lida pelo logback-spring.xml.
+     */
+    private double querySampleRate = 0.01;
+}
@@ -0,0 +1,68 @@
+package academy.devdojo.webflux.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import reactor.core.publisher.Mono;
+
+/**
+ * Pool exposto para o Spring Data, mede quanto tempo cada repositorio espera por uma conexao.
+ * Os gauges do pool (acquired, idle, pending) vem do actuator, que chega ao pool pelo unwrap.
+ */
+public class MeteredConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory> {
+
+    private static final String ACQUIRE_METRIC = "r2dbc.pool.acquire";
+
+    private final ConnectionPool connectionPool;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer acquired;
+
+    public MeteredConnectionFactory(ConnectionPool connectionPool, MeterRegistry meterRegistry) {
+        this.connectionPool = connectionPool;
+        this.meterRegistry = meterRegistry;
+        this.acquired = acquireTimer("success", "none");
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return connectionPool.create()
+                    .doOnSuccess(connection -> sample.stop(acquired))
+                    .doOnError(error -> sample.stop(acquireTimer("error", error.getClass().getSimpleName())));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return connectionPool.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return connectionPool;
+    }
+
+    public Mono<Integer> warmup() {
+        return connectionPool.warmup();
+    }
+
+    public void dispose() {
+        connectionPool.dispose();
+    }
+
+    private Timer acquireTimer(String outcome, String exception) {
+        return Timer.builder(ACQUIRE_METRIC)
+                .description("Time waiting for a connection from the pool")
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,47 @@
+package academy.devdojo.webflux.config;
+
+import academy.devdojo.webflux.service.AnimeService;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.regex.Pattern;
+
+/**
+ * Metricas do servidor Reactor Netty e filtros que mantem a cardinalidade das tags limitada.
+ * As rotas do AnimeController ja sao medidas pelo actuator em http.server.requests, com a tag uri no formato do template.
+ */
+@Configuration
+public class MetricsConfig {
+
+    static final String NETTY_SERVER_METRIC = "reactor.netty.http.server";
+
+    static final int MAX_NETTY_URIS = 100;
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    @Bean
+    public NettyServerCustomizer nettyMetricsCustomizer() {
+        return httpServer -> httpServer.metrics(true, MetricsConfig::uriTag);
+    }
+
+    // Qualquer caminho desconhecido viraria uma serie nova, acima do limite as series de uri sao descartadas
+    @Bean
+    public MeterFilter nettyUriCardinalityFilter() {
+        return MeterFilter.maximumAllowableTags(NETTY_SERVER_METRIC, "uri", MAX_NETTY_URIS, MeterFilter.deny());
+    }
+
+    // O Reactor mede cada elemento emitido, caro demais no streaming e sem uso para latencia do metodo
+    @Bean
+    public MeterFilter animeServicePerElementFilter() {
+        return MeterFilter.deny(id -> id.getName().equals(AnimeService.METRIC + ".onNext.delay")
+                || id.getName().equals(AnimeService.METRIC + ".requested"));
+    }
+
+    public static String uriTag(String uri) {
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        return NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+}
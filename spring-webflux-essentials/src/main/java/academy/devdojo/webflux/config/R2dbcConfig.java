@@ -0,0 +1,82 @@
+package academy.devdojo.webflux.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+@Configuration
+@Slf4j
+public class R2dbcConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public MeteredConnectionFactory connectionFactory(R2dbcProperties r2dbcProperties,
+                                                     DatabaseProperties databaseProperties,
+                                                     MeterRegistry meterRegistry) {
+        DatabaseProperties.Pool pool = databaseProperties.getPool();
+
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(connectionOptions(r2dbcProperties)))
+                .name("anime")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxAcquireTime(pool.getAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxLifeTime() != null) {
+            configuration.maxLifeTime(pool.getMaxLifeTime());
+        }
+        if (StringUtils.hasText(pool.getValidationQuery())) {
+            configuration.validationQuery(pool.getValidationQuery());
+        }
+
+        MeteredConnectionFactory connectionFactory = new MeteredConnectionFactory(new ConnectionPool(configuration.build()), meterRegistry);
+        if (pool.isWarmUp()) {
+            warmUp(connectionFactory, pool);
+        }
+        return connectionFactory;
+    }
+
+    // Conexao direta com o Postgres, sem o pool, tambem usada por quem precisa segurar uma conexao propria
+    public static ConnectionFactoryOptions connectionOptions(R2dbcProperties r2dbcProperties) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(r2dbcProperties.getUrl()).mutate();
+        if (StringUtils.hasText(r2dbcProperties.getUsername())) {
+            options.option(ConnectionFactoryOptions.USER, r2dbcProperties.getUsername());
+        }
+        if (StringUtils.hasText(r2dbcProperties.getPassword())) {
+            options.option(ConnectionFactoryOptions.PASSWORD, r2dbcProperties.getPassword());
+        }
+        return options.build();
+    }
+
+    // Abre as conexoes iniciais antes do servidor aceitar requisicoes e compara o teto do pool com o do Postgres
+    private void warmUp(MeteredConnectionFactory connectionFactory, DatabaseProperties.Pool pool) {
+        try {
+            Integer warmed = connectionFactory.warmup()
+                    .block(pool.getAcquireTimeout().multipliedBy(pool.getInitialSize() + 1L));
+            Integer maxConnections = Mono.usingWhen(connectionFactory.create(),
+                            this::maxConnections,
+                            Connection::close)
+                    .block(pool.getAcquireTimeout());
+            log.info("R2DBC pool warmed up with {} connections, max size {} of {} allowed by Postgres",
+                    warmed, pool.getMaxSize(), maxConnections);
+            if (maxConnections != null && pool.getMaxSize() >= maxConnections) {
+                log.warn("R2DBC pool max size {} reaches Postgres max_connections {}, other clients and instances will be refused",
+                        pool.getMaxSize(), maxConnections);
+            }
+        } catch (RuntimeException e) {
+            log.warn("R2DBC pool warm-up failed, connections will be opened on demand", e);
+        }
+    }
+
+    private Mono<Integer> maxConnections(Connection connection) {
+        return Mono.from(connection.createStatement("SELECT current_setting('max_connections')::int").execute())
+                .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Integer.class))));
+    }
+}
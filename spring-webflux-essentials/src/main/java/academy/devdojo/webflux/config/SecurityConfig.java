@@ -1,12 +1,21 @@
 package academy.devdojo.webflux.config;
 
+import academy.devdojo.webflux.security.AdmissionWebFilter;
+import academy.devdojo.webflux.security.CachingReactiveAuthenticationManager;
+import academy.devdojo.webflux.security.CredentialCache;
+import academy.devdojo.webflux.security.PasswordVerification;
+import academy.devdojo.webflux.security.TimedReactiveAuthenticationManager;
+import academy.devdojo.webflux.security.TokenAuthenticationWebFilter;
+import academy.devdojo.webflux.security.TokenService;
 import academy.devdojo.webflux.service.DevDojoUserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
@@ -15,15 +24,24 @@ import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @EnableWebFluxSecurity
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityWebFilterChain serSecurityWebFilterChain(ServerHttpSecurity http){
+    public SecurityWebFilterChain serSecurityWebFilterChain(ServerHttpSecurity http, TokenService tokenService, MeterRegistry meterRegistry,
+                                                            AdmissionProperties admissionProperties){
+        // Depois da autorizacao o usuario ja e conhecido, requisicoes negadas nao consomem a cota dele
+        if (admissionProperties.isEnabled()) {
+            http.addFilterAfter(new AdmissionWebFilter(admissionProperties, meterRegistry), SecurityWebFiltersOrder.AUTHORIZATION);
+        }
         return http
                 .csrf().disable()
+                .addFilterAt(new TokenAuthenticationWebFilter(tokenService, meterRegistry), SecurityWebFiltersOrder.AUTHENTICATION)
                 .authorizeExchange()
+                    .pathMatchers(HttpMethod.POST, "/auth/token").permitAll()
                     .pathMatchers(HttpMethod.POST, "/animes/**").hasRole("ADMIN")
                     .pathMatchers(HttpMethod.PUT, "/animes/**").hasRole("ADMIN")
                     .pathMatchers(HttpMethod.DELETE, "/animes/**").hasRole("ADMIN")
@@ -56,8 +74,23 @@ public class SecurityConfig {
 //    }
 
     @Bean
-    public ReactiveAuthenticationManager authenticationManager(DevDojoUserService devDojoUserService){
-        return new UserDetailsRepositoryReactiveAuthenticationManager(devDojoUserService);
+    public ReactiveAuthenticationManager authenticationManager(DevDojoUserService devDojoUserService,
+                                                               CredentialCache credentialCache,
+                                                               PasswordVerification passwordVerification,
+                                                               MeterRegistry meterRegistry){
+        UserDetailsRepositoryReactiveAuthenticationManager userDetailsAuthenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(devDojoUserService);
+        userDetailsAuthenticationManager.setScheduler(passwordVerification.getScheduler());
+        userDetailsAuthenticationManager.setPasswordEncoder(passwordVerification.getPasswordEncoder());
+        userDetailsAuthenticationManager.setUserDetailsPasswordService(devDojoUserService);
+
+        ReactiveAuthenticationManager loadSheddingAuthenticationManager = authentication ->
+                userDetailsAuthenticationManager.authenticate(authentication)
+                        .onErrorMap(RejectedExecutionException.class, passwordVerification::overloaded);
+
+        return new TimedReactiveAuthenticationManager(
+                new CachingReactiveAuthenticationManager(loadSheddingAuthenticationManager, credentialCache),
+                meterRegistry, "password");
     }
 
 }
@@ -1,7 +1,14 @@
 package academy.devdojo.webflux.controller;
 
+import academy.devdojo.webflux.codec.AnimeProtobufEncoder;
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import academy.devdojo.webflux.domain.AnimeChunkAck;
+import academy.devdojo.webflux.domain.AnimePage;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import academy.devdojo.webflux.exception.DomainError;
 import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.service.AnimeChangeFeed;
 import academy.devdojo.webflux.service.AnimeService;
 import ch.qos.logback.classic.boolex.JaninoEventEvaluator;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,14 +19,17 @@ import jdk.jshell.Snippet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.repository.query.Param;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
-import java.text.MessageFormat;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -33,27 +43,129 @@ import java.util.List;
 )
 public class AnimeController {
 
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
     private final AnimeService animeService;
 
+    private final AnimeChangeFeed animeChangeFeed;
+
     @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "List all animes, answering 304 when If-None-Match has the current ETag",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Mono<ResponseEntity<Flux<Anime>>> listAll(){
+        log.debug("list all anime!");
+        // O corpo so e assinado quando o ETag nao confere, no 304 os animes nem sao lidos
+        return animeService.findAllWithFingerprint()
+                .map(catalog -> ResponseEntity.ok()
+                        .eTag(catalog.getT1())
+                        .body(catalog.getT2()));
+    }
+
+    @GetMapping(params = "ids")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "List the animes of the given ids with a single query",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<Anime> listByIds(@RequestParam List<Integer> ids){
+        log.debug("list animes by ids!");
+        return animeService.findByIds(ids);
+    }
+
+    @GetMapping(path = "stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE,
+            AnimeProtobufEncoder.APPLICATION_PROTOBUF_VALUE})
     @ResponseStatus(HttpStatus.OK)
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "List all animes",
+    @Operation(summary = "Stream all animes as NDJSON, server-sent events or length-delimited protobuf following the client demand",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
-    public Flux<Anime> listAll(){
-        log.info("list all anime!");
-        return animeService.findAll();
+    public Flux<Anime> streamAll(){
+        log.debug("stream all anime!");
+        return animeService.streamAll();
     }
 
-    @GetMapping(path = "{id}")
+    @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream anime changes as server-sent events, resuming after the Last-Event-ID header",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<ServerSentEvent<AnimeChange>> changes(@RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId){
+        log.debug("stream anime changes after {}!", lastEventId);
+        Flux<ServerSentEvent<AnimeChange>> events = animeChangeFeed.changes(lastEventId)
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(String.valueOf(change.getSequence()))
+                        .event(change.getType().name())
+                        .build());
+        // Comentarios periodicos mantem a conexao aberta em proxies e revelam clientes que ja foram embora
+        Flux<ServerSentEvent<AnimeChange>> heartbeats = Flux.interval(animeChangeFeed.getHeartbeat())
+                .map(tick -> ServerSentEvent.<AnimeChange>builder().comment("heartbeat").build());
+        // Os heartbeats param junto com as mudancas, senao um RESET ou erro nunca fecharia a resposta
+        return events.publish(shared -> shared.mergeWith(heartbeats.takeUntilOther(shared.then())));
+    }
+
+    @GetMapping(path = "changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream anime changes as NDJSON, resuming after the sequence in the Last-Event-ID header",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<AnimeChange> changesNdjson(@RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId){
+        log.debug("stream anime changes after {}!", lastEventId);
+        return animeChangeFeed.changes(lastEventId);
+    }
+
+    @GetMapping(path = "page")
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Get anime by id",
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "List animes page by page using the cursor returned in the previous page",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
-    public Mono<Anime> listById(@PathVariable int id){
-        log.info(MessageFormat.format("list anime by id {0}!", id));
-        return animeService.findById(id);
+    public Mono<AnimePage> listPage(@RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "" + AnimeService.DEFAULT_PAGE_SIZE) int size,
+                                    @RequestParam(defaultValue = "false") boolean exactTotal){
+        log.debug("list anime page!");
+        return animeService.findPage(cursor, size, exactTotal);
+    }
+
+    @GetMapping(path = "search")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search animes by part of the name, prefixes first and then by similarity",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Mono<AnimePage> search(@RequestParam String q,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "" + AnimeService.DEFAULT_PAGE_SIZE) int size,
+                                  @RequestParam(defaultValue = "false") boolean exactTotal){
+        log.debug("search animes!");
+        return animeService.search(q, cursor, size, exactTotal);
+    }
+
+    @GetMapping(path = "suggest")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Suggest animes whose name starts with the prefix, served from memory",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<AnimeSuggestion> suggest(@RequestParam String prefix,
+                                         @RequestParam(defaultValue = "10") int limit){
+        return animeService.suggest(prefix, limit);
+    }
+
+    @GetMapping(path = "{id}")
+    @Operation(summary = "Get anime by id, answering 304 when If-None-Match has the current ETag",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Mono<ResponseEntity<Anime>> listById(@PathVariable int id){
+        log.debug("list anime by id {}!", id);
+        return animeService.findById(id)
+                .map(anime -> ResponseEntity.ok()
+                        .eTag(eTag(anime))
+                        .body(anime));
+    }
+
+    private String eTag(Anime anime) {
+        return anime.getId() + "-" + anime.getVersion();
     }
 
     @PostMapping
@@ -62,7 +174,7 @@ public class AnimeController {
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
     public Mono<Anime> save(@Valid @RequestBody Anime anime){
-        log.info("Save anime!");
+        log.debug("Save anime!");
         return animeService.save(anime);
     }
 
@@ -72,27 +184,61 @@ public class AnimeController {
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
     public Flux<Anime> saveBatch(@RequestBody List<Anime> animes){
-        log.info("Save anime!");
+        log.debug("Save anime!");
         return animeService.saveAll(animes);
     }
 
+    @PostMapping(path = "ingest", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Ingest a NDJSON stream of animes, acknowledging each chunk written",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<AnimeChunkAck> ingest(@Valid @RequestBody Flux<Anime> animes){
+        log.debug("Ingest animes!");
+        return animeService.ingest(animes);
+    }
+
     @PutMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Operation(summary = "Update anime",
+    @Operation(summary = "Update anime, only when If-Match has the current ETag if the header is sent",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
-    public Mono<Void> update(@PathVariable int id, @Valid @RequestBody Anime anime){
-        log.info("Update anime!");
-        return animeService.update(anime.withId(id));
+    public Mono<Void> update(@PathVariable int id, @Valid @RequestBody Anime anime,
+                             @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        log.debug("Update anime {}!", id);
+        return Mono.defer(() -> animeService.update(anime.withId(id), expectedVersion(id, ifMatch)));
     }
 
     @DeleteMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @Operation(summary = "Delete anime by id",
+    @Operation(summary = "Delete anime by id, only when If-Match has the current ETag if the header is sent",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
-    public Mono<Void> delete(@PathVariable int id){
-        log.info("Delete anime!");
-        return animeService.delete(id);
+    public Mono<Void> delete(@PathVariable int id,
+                             @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        log.debug("Delete anime {}!", id);
+        return Mono.defer(() -> animeService.delete(id, expectedVersion(id, ifMatch)));
+    }
+
+    /**
+     * Versao esperada pelo If-Match, null quando o header nao vem ou e "*"
+     */
+    private Integer expectedVersion(int id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("\"") && tag.endsWith("\"") && tag.length() > 1) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        String prefix = id + "-";
+        try {
+            if (tag.startsWith(prefix)) {
+                return Integer.valueOf(tag.substring(prefix.length()));
+            }
+        } catch (NumberFormatException ignored) {
+            // cai no 412 abaixo
+        }
+        throw DomainError.IF_MATCH_MISMATCH.exception();
     }
 }
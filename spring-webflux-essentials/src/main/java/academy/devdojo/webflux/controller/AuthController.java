@@ -0,0 +1,45 @@
+package academy.devdojo.webflux.controller;
+
+import academy.devdojo.webflux.domain.TokenRequest;
+import academy.devdojo.webflux.domain.TokenResponse;
+import academy.devdojo.webflux.security.TokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("auth")
+@Slf4j
+public class AuthController {
+
+    private final ReactiveAuthenticationManager authenticationManager;
+
+    private final TokenService tokenService;
+
+    @PostMapping(path = "token")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exchange username and password for a signed bearer token",
+            tags = {"auth"})
+    public Mono<TokenResponse> token(@Valid @RequestBody TokenRequest tokenRequest){
+        log.debug("Issue token!");
+        return authenticationManager
+                .authenticate(new UsernamePasswordAuthenticationToken(tokenRequest.getUsername(), tokenRequest.getPassword()))
+                .onErrorMap(AuthenticationException.class,
+                        e -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials"))
+                .map(authentication -> TokenResponse.builder()
+                        .token(tokenService.issue(authentication))
+                        .tokenType("Bearer")
+                        .expiresIn(tokenService.getTtl().getSeconds())
+                        .build());
+    }
+}
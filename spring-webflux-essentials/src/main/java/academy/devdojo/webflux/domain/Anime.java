@@ -2,6 +2,7 @@ package academy.devdojo.webflux.domain;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 import javax.validation.constraints.NotEmpty;
@@ -22,4 +23,10 @@ public class Anime {
     @NotEmpty(message = "The name of this anime cannot be empty")
     private String name;
 
+    /**
+     * Incrementada a cada escrita, origem do ETag do anime
+     */
+    @Version
+    private Integer version;
+
 }
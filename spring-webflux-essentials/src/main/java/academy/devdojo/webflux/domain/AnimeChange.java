@@ -0,0 +1,35 @@
+package academy.devdojo.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeChange {
+
+    /**
+     * Crescente entre mudancas, enviada como id do evento SSE e aceita de volta no Last-Event-ID
+     */
+    private long sequence;
+
+    private Type type;
+
+    private Integer animeId;
+
+    /**
+     * Estado gravado, null em DELETED e RESET
+     */
+    private Anime anime;
+
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        /**
+         * Mudancas anteriores ao Last-Event-ID ja sairam do buffer, o cliente deve reler GET /animes
+         */
+        RESET
+    }
+}
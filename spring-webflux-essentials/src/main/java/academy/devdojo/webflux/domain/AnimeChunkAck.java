@@ -0,0 +1,22 @@
+package academy.devdojo.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeChunkAck {
+
+    private long chunk;
+
+    private int count;
+
+    private Integer firstId;
+
+    private Integer lastId;
+
+}
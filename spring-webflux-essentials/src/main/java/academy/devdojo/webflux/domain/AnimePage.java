@@ -0,0 +1,24 @@
+package academy.devdojo.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimePage {
+
+    private List<Anime> content;
+
+    private String next;
+
+    private long total;
+
+    private boolean estimatedTotal;
+
+}
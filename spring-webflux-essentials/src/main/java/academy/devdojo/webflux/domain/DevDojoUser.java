@@ -11,6 +11,9 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Data
@@ -19,6 +22,9 @@ import java.util.stream.Collectors;
 @Table("devdojo_user")
 public class DevDojoUser implements UserDetails {
 
+    // Poucas combinacoes distintas de roles, cada uma e convertida uma unica vez
+    private static final Map<String, List<GrantedAuthority>> GRANTED_AUTHORITIES = new ConcurrentHashMap<>();
+
     @Id
     private Integer id;
     private String name;
@@ -28,9 +34,13 @@ public class DevDojoUser implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
+        return GRANTED_AUTHORITIES.computeIfAbsent(authorities, DevDojoUser::toGrantedAuthorities);
+    }
+
+    private static List<GrantedAuthority> toGrantedAuthorities(String authorities) {
         return Arrays.stream(authorities.split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList());
     }
 
     @Override
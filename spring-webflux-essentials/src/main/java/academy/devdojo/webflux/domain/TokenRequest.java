@@ -0,0 +1,22 @@
+package academy.devdojo.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TokenRequest {
+
+    @NotEmpty(message = "The username cannot be empty")
+    private String username;
+
+    @NotEmpty(message = "The password cannot be empty")
+    private String password;
+
+}
@@ -1,5 +1,6 @@
 package academy.devdojo.webflux.exception;
 
+import academy.devdojo.webflux.logging.RequestLoggingWebFilter;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
 import org.springframework.stereotype.Component;
@@ -11,14 +12,18 @@ import java.util.Map;
 @Component
 public class CustomAttributes extends DefaultErrorAttributes {
 
+    static final String DEVELOPER_MESSAGE = "A ResponseStatusException Happened";
+
     public Map<String, Object> getErrorAttributes(ServerRequest request, ErrorAttributeOptions options) {
         Map<String, Object> errorAttributes = super.getErrorAttributes(request, options);
         Throwable throwable = getError(request);
         if(throwable instanceof ResponseStatusException){
             ResponseStatusException ex = (ResponseStatusException) throwable;
             errorAttributes.put("message", ex.getMessage());
-            errorAttributes.put("developerMessage", "A ResponseStatusException Happened");
+            errorAttributes.put("developerMessage", DEVELOPER_MESSAGE);
         }
+        request.attribute(RequestLoggingWebFilter.CORRELATION_ID)
+                .ifPresent(correlationId -> errorAttributes.put("correlationId", correlationId));
         return errorAttributes;
     }
 }
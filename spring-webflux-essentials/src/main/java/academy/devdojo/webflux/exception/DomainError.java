@@ -0,0 +1,47 @@
+package academy.devdojo.webflux.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Erros esperados das regras de negocio. Cada ocorrencia e uma excecao nova e sem pilha: uma instancia compartilhada
+ * acumularia as suprimidas que o checkpoint do Reactor anexa a cada erro, de todas as requisicoes.
+ * O GlobalExceptionHandler tem o corpo JSON de cada erro ja codificado, indexado pelo erro e nao pela instancia.
+ */
+public enum DomainError {
+
+    ANIME_NOT_FOUND(HttpStatus.NOT_FOUND, "Anime not found"),
+
+    VERSION_MISMATCH(HttpStatus.PRECONDITION_FAILED, "Anime version does not match"),
+
+    IF_MATCH_MISMATCH(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the anime"),
+
+    INVALID_NAME(HttpStatus.BAD_REQUEST, "Invalid name"),
+
+    INVALID_SEARCH(HttpStatus.BAD_REQUEST, "Invalid search"),
+
+    INVALID_CURSOR(HttpStatus.BAD_REQUEST, "Invalid cursor");
+
+    private final HttpStatus status;
+
+    private final String reason;
+
+    DomainError(HttpStatus status, String reason) {
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Excecao nova a cada chamada, barata porque nao captura a pilha
+     */
+    public StacklessResponseStatusException exception() {
+        return new StacklessResponseStatusException(this);
+    }
+}
@@ -0,0 +1,26 @@
+package academy.devdojo.webflux.exception;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Sinaliza os DomainError nos fluxos reativos, com a pilha completa so quando a requisicao pede trace=true.
+ */
+public final class DomainErrors {
+
+    /**
+     * Chave do Reactor Context ligada pelo TraceContextWebFilter quando a requisicao pede trace=true.
+     */
+    public static final String TRACE = DomainErrors.class.getName() + ".TRACE";
+
+    private DomainErrors() {
+    }
+
+    /**
+     * Mono.error com uma excecao sem pilha, ou com uma copia com pilha quando a requisicao pediu trace=true
+     */
+    public static <T> Mono<T> error(DomainError error) {
+        return Mono.deferContextual(context -> Mono.error(context.hasKey(TRACE)
+                ? error.exception().withStackTrace()
+                : error.exception()));
+    }
+}
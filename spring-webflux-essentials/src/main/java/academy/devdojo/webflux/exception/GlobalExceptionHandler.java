@@ -1,5 +1,7 @@
 package academy.devdojo.webflux.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.web.WebProperties;
 import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
@@ -9,7 +11,6 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.*;
@@ -22,12 +23,21 @@ import java.util.Optional;
 @Order(-2)
 public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
 
+    public static final String ERRORS_METRIC = "http.server.errors";
+
+    private final MeterRegistry meterRegistry;
+
+    private final PreEncodedErrorResponses preEncodedErrorResponses;
+
     public GlobalExceptionHandler(ErrorAttributes errorAttributes,
                                   WebProperties.Resources resources,
                                   ApplicationContext applicationContext,
-                                  ServerCodecConfigurer codecConfigurer) {
+                                  ServerCodecConfigurer codecConfigurer,
+                                  MeterRegistry meterRegistry) {
         super(errorAttributes, resources, applicationContext);
         this.setMessageWriters(codecConfigurer.getWriters());
+        this.meterRegistry = meterRegistry;
+        this.preEncodedErrorResponses = new PreEncodedErrorResponses(meterRegistry);
     }
 
     @Override
@@ -36,21 +46,41 @@ public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
     }
 
     private Mono<ServerResponse> formatErrorResponse(ServerRequest request){
+        boolean traceEnabled = TraceContextWebFilter.isTraceEnabled(request.uri().getRawQuery());
+
+        // Erros de dominio sem trace saem do corpo pre-codificado, sem mapa de atributos nem Jackson
+        PreEncodedErrorResponses.PreEncodedError preEncoded = traceEnabled ? null : preEncodedErrorResponses.get(getError(request));
+        if (preEncoded != null) {
+            preEncoded.getCounter().increment();
+            return ServerResponse.status(preEncoded.getStatus())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromDataBuffers(Mono.fromSupplier(() -> preEncoded.render(request))));
+        }
+
         ErrorAttributeOptions errorAttributeOptions
-                = isTraceEnabled(request.uri().getQuery())
+                = traceEnabled
                     ? ErrorAttributeOptions.of(ErrorAttributeOptions.Include.STACK_TRACE)
                         : ErrorAttributeOptions.defaults();
 
         Map<String, Object> errorAttributes = getErrorAttributes(request, errorAttributeOptions);
 
         int status = (int) Optional.ofNullable(errorAttributes.get("status")).orElse(500);
+        countError(request, status);
 
         return ServerResponse.status(status)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(errorAttributes));
     }
 
-    private boolean isTraceEnabled(String query){
-        return !StringUtils.isEmpty(query) && query.contains("trace=true");
+    // Tags limitadas ao status e a classe da excecao, a mensagem e o caminho ficariam sem limite de series
+    private void countError(ServerRequest request, int status) {
+        errorCounter(meterRegistry, status, getError(request)).increment();
+    }
+
+    static Counter errorCounter(MeterRegistry meterRegistry, int status, Throwable error) {
+        return Counter.builder(ERRORS_METRIC)
+                .tag("status", String.valueOf(status))
+                .tag("exception", error.getClass().getSimpleName())
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,108 @@
+package academy.devdojo.webflux.exception;
+
+import academy.devdojo.webflux.logging.RequestLoggingWebFilter;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Corpos de erro dos DomainError com a parte fixa ja codificada em JSON. Por requisicao so entram
+ * timestamp, path, requestId e correlationId, no mesmo formato e ordem do CustomAttributes serializado pelo Jackson.
+ */
+class PreEncodedErrorResponses {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx");
+
+    private static final byte[] TIMESTAMP_FIELD = utf8("{\"timestamp\":\"");
+
+    private static final byte[] PATH_FIELD = utf8("\",\"path\":\"");
+
+    private static final byte[] REQUEST_ID_FIELD = utf8(",\"requestId\":\"");
+
+    private static final byte[] DEVELOPER_MESSAGE_FIELD =
+            utf8("\",\"developerMessage\":\"" + quote(CustomAttributes.DEVELOPER_MESSAGE) + "\"");
+
+    private static final byte[] CORRELATION_ID_FIELD = utf8(",\"correlationId\":\"");
+
+    private static final byte[] QUOTE = utf8("\"");
+
+    private static final byte[] END = utf8("}");
+
+    private static final int INITIAL_CAPACITY = 320;
+
+    private final Map<DomainError, PreEncodedError> errors = new EnumMap<>(DomainError.class);
+
+    PreEncodedErrorResponses(MeterRegistry meterRegistry) {
+        for (DomainError error : DomainError.values()) {
+            errors.put(error, new PreEncodedError(error.exception(), meterRegistry));
+        }
+    }
+
+    /**
+     * Resposta pronta para o erro, ou null quando ele nao e um DomainError
+     */
+    PreEncodedError get(Throwable error) {
+        return error instanceof StacklessResponseStatusException
+                ? errors.get(((StacklessResponseStatusException) error).getError())
+                : null;
+    }
+
+    static final class PreEncodedError {
+
+        private final int status;
+
+        private final byte[] statusFields;
+
+        private final Counter counter;
+
+        private PreEncodedError(StacklessResponseStatusException error, MeterRegistry meterRegistry) {
+            this.status = error.getRawStatusCode();
+            this.statusFields = utf8("\",\"status\":" + status
+                    + ",\"error\":\"" + quote(error.getStatus().getReasonPhrase())
+                    + "\",\"message\":\"" + quote(error.getMessage()) + "\"");
+            this.counter = GlobalExceptionHandler.errorCounter(meterRegistry, status, error);
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        Counter getCounter() {
+            return counter;
+        }
+
+        DataBuffer render(ServerRequest request) {
+            DataBuffer buffer = request.exchange().getResponse().bufferFactory().allocateBuffer(INITIAL_CAPACITY);
+            buffer.write(TIMESTAMP_FIELD)
+                    .write(utf8(TIMESTAMP.format(OffsetDateTime.now(ZoneOffset.UTC))))
+                    .write(PATH_FIELD)
+                    .write(JsonStringEncoder.getInstance().quoteAsUTF8(request.path()))
+                    .write(statusFields)
+                    .write(REQUEST_ID_FIELD)
+                    .write(JsonStringEncoder.getInstance().quoteAsUTF8(request.exchange().getRequest().getId()))
+                    .write(DEVELOPER_MESSAGE_FIELD);
+            request.attribute(RequestLoggingWebFilter.CORRELATION_ID).ifPresent(correlationId -> buffer
+                    .write(CORRELATION_ID_FIELD)
+                    .write(JsonStringEncoder.getInstance().quoteAsUTF8(correlationId.toString()))
+                    .write(QUOTE));
+            return buffer.write(END);
+        }
+    }
+
+    private static String quote(String value) {
+        return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
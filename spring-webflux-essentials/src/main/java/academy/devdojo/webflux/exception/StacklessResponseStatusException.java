@@ -0,0 +1,33 @@
+package academy.devdojo.webflux.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * ResponseStatusException de um erro esperado do dominio, sem pilha: criar uma por erro custa so a alocacao.
+ * Quem precisa da pilha pede trace=true e recebe uma copia completa via DomainErrors.
+ */
+public class StacklessResponseStatusException extends ResponseStatusException {
+
+    private final DomainError error;
+
+    StacklessResponseStatusException(DomainError error) {
+        super(error.getStatus(), error.getReason());
+        this.error = error;
+    }
+
+    public DomainError getError() {
+        return error;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * Copia com a pilha do ponto onde e chamada, para as requisicoes com trace=true
+     */
+    public ResponseStatusException withStackTrace() {
+        return new ResponseStatusException(getStatus(), getReason());
+    }
+}
@@ -0,0 +1,29 @@
+package academy.devdojo.webflux.exception;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Marca no Reactor Context as requisicoes com trace=true, so elas pagam pela pilha dos erros de dominio.
+ */
+@Component
+public class TraceContextWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!isTraceEnabled(exchange.getRequest().getURI().getRawQuery())) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange)
+                .contextWrite(Context.of(DomainErrors.TRACE, Boolean.TRUE));
+    }
+
+    static boolean isTraceEnabled(String query) {
+        return StringUtils.hasLength(query) && query.contains("trace=true");
+    }
+}
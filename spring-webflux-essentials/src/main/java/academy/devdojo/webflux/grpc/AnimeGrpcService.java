@@ -0,0 +1,61 @@
+package academy.devdojo.webflux.grpc;
+
+import academy.devdojo.webflux.codec.AnimeMessages;
+import academy.devdojo.webflux.domain.AnimeChunkAck;
+import academy.devdojo.webflux.proto.AnimeIdRequest;
+import academy.devdojo.webflux.proto.AnimeMessage;
+import academy.devdojo.webflux.proto.BulkInsertResponse;
+import academy.devdojo.webflux.proto.ListAnimesRequest;
+import academy.devdojo.webflux.proto.ReactorAnimeServiceGrpc;
+import academy.devdojo.webflux.service.AnimeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.service.GrpcService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Endpoint gRPC do catalogo sobre o mesmo AnimeService do AnimeController, sem passar pelos WebFilters do REST.
+ * No List a demanda vem do controle de fluxo do HTTP/2: o stub so pede mais animes quando a chamada esta pronta
+ * para escrever e o limitRate do streamAll repassa essa demanda ao cursor do Postgres em lotes de fetch-size.
+ * O BulkInsert reaproveita o ingest, com os mesmos chunks e a mesma validacao de nome.
+ */
+@GrpcService
+@RequiredArgsConstructor
+@Slf4j
+public class AnimeGrpcService extends ReactorAnimeServiceGrpc.AnimeServiceImplBase {
+
+    private final AnimeService animeService;
+
+    @Override
+    public Mono<AnimeMessage> get(Mono<AnimeIdRequest> request) {
+        return request
+                .flatMap(idRequest -> animeService.findById(idRequest.getId()))
+                .map(AnimeMessages::toMessage)
+                .onErrorMap(GrpcErrors::toStatusException);
+    }
+
+    @Override
+    public Flux<AnimeMessage> list(Mono<ListAnimesRequest> request) {
+        log.debug("grpc list animes!");
+        return request
+                .flatMapMany(listRequest -> animeService.streamAll())
+                .map(AnimeMessages::toMessage)
+                .onErrorMap(GrpcErrors::toStatusException);
+    }
+
+    @Override
+    public Mono<BulkInsertResponse> bulkInsert(Flux<AnimeMessage> request) {
+        log.debug("grpc bulk insert animes!");
+        return animeService.ingest(request.map(AnimeMessages::toAnime))
+                .reduceWith(BulkInsertResponse::newBuilder, AnimeGrpcService::accumulate)
+                .map(BulkInsertResponse.Builder::build)
+                .onErrorMap(GrpcErrors::toStatusException);
+    }
+
+    private static BulkInsertResponse.Builder accumulate(BulkInsertResponse.Builder response, AnimeChunkAck ack) {
+        return response
+                .setSaved(response.getSaved() + ack.getCount())
+                .setChunks(response.getChunks() + 1);
+    }
+}
@@ -0,0 +1,51 @@
+package academy.devdojo.webflux.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Traduz os erros do AnimeService, que sao ResponseStatusException pensadas para o REST, em status do gRPC.
+ */
+final class GrpcErrors {
+
+    private GrpcErrors() {
+    }
+
+    static Throwable toStatusException(Throwable error) {
+        if (error instanceof StatusRuntimeException) {
+            return error;
+        }
+        if (!(error instanceof ResponseStatusException)) {
+            // Sem detalhes para o cliente, como o 500 do GlobalExceptionHandler
+            return Status.INTERNAL.withCause(error).asRuntimeException();
+        }
+        ResponseStatusException responseStatus = (ResponseStatusException) error;
+        return toStatus(responseStatus.getRawStatusCode())
+                .withDescription(responseStatus.getReason())
+                .asRuntimeException();
+    }
+
+    private static Status toStatus(int httpStatus) {
+        switch (httpStatus) {
+            case 400:
+                return Status.INVALID_ARGUMENT;
+            case 401:
+                return Status.UNAUTHENTICATED;
+            case 403:
+                return Status.PERMISSION_DENIED;
+            case 404:
+                return Status.NOT_FOUND;
+            case 409:
+                return Status.ABORTED;
+            case 412:
+                return Status.FAILED_PRECONDITION;
+            case 429:
+                return Status.RESOURCE_EXHAUSTED;
+            case 503:
+                return Status.UNAVAILABLE;
+            default:
+                return Status.INTERNAL;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package academy.devdojo.webflux.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deixa passar so uma amostra das consultas logadas pelo driver R2DBC.
+ * O sorteio acontece no log da consulta e os logs de parametros que vem em seguida na mesma thread seguem a mesma decisao.
+ */
+public class QuerySamplingTurboFilter extends TurboFilter {
+
+    private static final ThreadLocal<Boolean> QUERY_SAMPLED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private String queryLogger = "io.r2dbc.postgresql.QUERY";
+
+    private String paramLogger = "io.r2dbc.postgresql.PARAM";
+
+    private double rate = 0.01;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        String name = logger.getName();
+        boolean query = name.equals(queryLogger);
+        if (!query && !name.equals(paramLogger)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Chamadas isDebugEnabled chegam sem format e seguem o nivel configurado
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        if (query) {
+            QUERY_SAMPLED.set(rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+        }
+        return QUERY_SAMPLED.get() ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setQueryLogger(String queryLogger) {
+        this.queryLogger = queryLogger;
+    }
+
+    public void setParamLogger(String paramLogger) {
+        this.paramLogger = paramLogger;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,98 @@
+package academy.devdojo.webflux.logging;
+
+import academy.devdojo.webflux.config.LoggingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Da um id de correlacao a cada requisicao, disponivel nos atributos da troca, no header de resposta e no corpo de erro.
+ * So uma amostra das requisicoes vai para o log de acesso, unica linha de log que leva o id: no Reactor 3.4 levar o id
+ * ate o MDC dos logs de controller, servico e driver exigiria copiar o Context a cada operador.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingWebFilter implements WebFilter {
+
+    public static final String CORRELATION_ID = "correlationId";
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("academy.devdojo.webflux.access");
+
+    private static final int MAX_CORRELATION_ID_LENGTH = 64;
+
+    private final String correlationHeader;
+
+    private final double sampleRate;
+
+    public RequestLoggingWebFilter(LoggingProperties loggingProperties) {
+        this.correlationHeader = loggingProperties.getCorrelationHeader();
+        this.sampleRate = loggingProperties.getRequestSampleRate();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String correlationId = correlationId(exchange.getRequest());
+        exchange.getResponse().getHeaders().set(correlationHeader, correlationId);
+        exchange.getAttributes().put(CORRELATION_ID, correlationId);
+
+        Mono<Void> filtered = chain.filter(exchange);
+        if (!sampled()) {
+            return filtered;
+        }
+
+        long start = System.nanoTime();
+        return filtered.doFinally(signal -> logAccess(exchange, correlationId, start, signal));
+    }
+
+    // O id do cliente so e aceito se for curto e sem caracteres que quebrem a linha de log
+    private String correlationId(ServerHttpRequest request) {
+        String received = request.getHeaders().getFirst(correlationHeader);
+        if (received != null && isValid(received)) {
+            return received;
+        }
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    private static boolean isValid(String correlationId) {
+        if (correlationId.isEmpty() || correlationId.length() > MAX_CORRELATION_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < correlationId.length(); i++) {
+            char c = correlationId.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sampled() {
+        return ACCESS_LOG.isInfoEnabled()
+                && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    // O MDC so vale na thread que escreve a linha, por isso e preenchido e limpo em volta da chamada
+    private void logAccess(ServerWebExchange exchange, String correlationId, long start, SignalType signal) {
+        ServerHttpRequest request = exchange.getRequest();
+        MDC.put(CORRELATION_ID, correlationId);
+        try {
+            ACCESS_LOG.info("{} {} {} {}ms {}", request.getMethodValue(), request.getPath().value(),
+                    exchange.getResponse().getRawStatusCode(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), signal);
+        } finally {
+            MDC.remove(CORRELATION_ID);
+        }
+    }
+}
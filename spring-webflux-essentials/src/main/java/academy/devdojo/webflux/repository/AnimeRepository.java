@@ -1,10 +1,50 @@
 package academy.devdojo.webflux.repository;
 
 import academy.devdojo.webflux.domain.Anime;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer> {
+public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer>, AnimeRepositoryCustom {
 
     Mono<Anime> findById(int id);
+
+    @Query("SELECT * FROM anime WHERE id = ANY(:ids)")
+    Flux<Anime> findByIds(Integer[] ids);
+
+    @Query("SELECT * FROM anime WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<Anime> findPage(int after, int limit);
+
+    // ILIKE usa o indice GIN de trigramas (anime_name_trgm_idx), prefixos vem antes e o resto pela similaridade
+    @Query("SELECT * FROM anime WHERE name ILIKE :pattern "
+            + "ORDER BY name ILIKE :prefix DESC, similarity(name, :term) DESC, id LIMIT :limit OFFSET :offset")
+    Flux<Anime> search(String term, String pattern, String prefix, int limit, int offset);
+
+    @Query("SELECT count(*) FROM anime WHERE name ILIKE :pattern")
+    Mono<Long> countSearch(String pattern);
+
+    // Escritas em um unico comando, sem ler o anime antes e sem janela entre a leitura e a escrita
+    @Query("UPDATE anime SET name = :name, version = version + 1 WHERE id = :id RETURNING *")
+    Mono<Anime> updateName(int id, String name);
+
+    @Query("UPDATE anime SET name = :name, version = version + 1 WHERE id = :id AND version = :version RETURNING *")
+    Mono<Anime> updateNameIfVersion(int id, String name, int version);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id = :id")
+    Mono<Integer> deleteAnimeById(int id);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id = :id AND version = :version")
+    Mono<Integer> deleteAnimeByIdIfVersion(int id, int version);
+
+    // Resumo de id e versao de todos os animes, muda sempre que algum anime e criado, alterado ou removido
+    @Query("SELECT coalesce(md5(string_agg(id || ':' || version, ',' ORDER BY id)), md5('')) FROM anime")
+    Mono<String> fingerprint();
+
+    // Estimativa mantida pelo ANALYZE/autovacuum, evita o COUNT(*) que percorre a tabela inteira
+    @Query("SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = 'anime.anime'::regclass")
+    Mono<Long> estimateCount();
 }
@@ -0,0 +1,13 @@
+package academy.devdojo.webflux.repository;
+
+import academy.devdojo.webflux.domain.Anime;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface AnimeRepositoryCustom {
+
+    Flux<Anime> streamAll(int fetchSize);
+
+    Flux<Anime> insertAll(List<Anime> animes);
+}
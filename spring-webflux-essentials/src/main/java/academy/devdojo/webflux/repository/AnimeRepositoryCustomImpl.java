@@ -0,0 +1,46 @@
+package academy.devdojo.webflux.repository;
+
+import academy.devdojo.webflux.domain.Anime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class AnimeRepositoryCustomImpl implements AnimeRepositoryCustom {
+
+    private final DatabaseClient databaseClient;
+
+    private final R2dbcConverter r2dbcConverter;
+
+    @Override
+    public Flux<Anime> streamAll(int fetchSize) {
+        return databaseClient.sql("SELECT * FROM anime ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> r2dbcConverter.read(Anime.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Flux<Anime> insertAll(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO anime (name) VALUES ");
+        for (int i = 0; i < animes.size(); i++) {
+            sql.append(i == 0 ? "(:name" : ", (:name").append(i).append(')');
+        }
+        sql.append(" RETURNING *");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < animes.size(); i++) {
+            spec = spec.bind("name" + i, animes.get(i).getName());
+        }
+
+        return spec.map((row, metadata) -> r2dbcConverter.read(Anime.class, row, metadata))
+                .all();
+    }
+}
@@ -0,0 +1,201 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AdmissionProperties;
+import academy.devdojo.webflux.config.MetricsConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admissao por usuario autenticado e rota: taxa com rajada (token bucket) e limite de requisicoes em andamento.
+ * Fica depois da autorizacao no SecurityConfig, quem excede recebe 429 com Retry-After antes de chegar ao banco.
+ */
+public class AdmissionWebFilter implements WebFilter {
+
+    public static final String REJECTED_METRIC = "http.server.admission.rejected";
+
+    private final List<RoleLimits> roleLimits = new ArrayList<>();
+
+    private final Cache<String, Admission> admissions;
+
+    private final LongSupplier nanoTime;
+
+    public AdmissionWebFilter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionWebFilter(AdmissionProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        for (Map.Entry<String, AdmissionProperties.Limits> role : properties.getRoles().entrySet()) {
+            roleLimits.add(new RoleLimits(role.getKey(), role.getValue(), meterRegistry));
+        }
+        this.admissions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumKeys())
+                .expireAfterAccess(properties.getIdleTtl())
+                .build();
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(Authentication::isAuthenticated)
+                .flatMap(authentication -> Mono.justOrEmpty(admissionOf(exchange, authentication)))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(admission -> admission.isPresent()
+                        ? admit(admission.get(), exchange, chain)
+                        : chain.filter(exchange));
+    }
+
+    // Anonimos e usuarios sem role configurada passam sem limite
+    private Admission admissionOf(ServerWebExchange exchange, Authentication authentication) {
+        RoleLimits limits = limitsOf(authentication);
+        if (limits == null) {
+            return null;
+        }
+        String route = exchange.getRequest().getMethodValue() + " " + MetricsConfig.uriTag(exchange.getRequest().getPath().value());
+        return admissions.get(authentication.getName() + " " + route, key -> new Admission(limits));
+    }
+
+    private Mono<Void> admit(Admission admission, ServerWebExchange exchange, WebFilterChain chain) {
+        long retryAfterNanos = admission.tryAcquireRate(nanoTime.getAsLong());
+        if (retryAfterNanos > 0) {
+            admission.limits.rateRejected.increment();
+            return tooManyRequests(exchange, retryAfterNanos);
+        }
+        if (!admission.tryAcquireConcurrency()) {
+            admission.limits.concurrencyRejected.increment();
+            return tooManyRequests(exchange, TimeUnit.SECONDS.toNanos(1));
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> admission.releaseConcurrency());
+    }
+
+    // Vale a primeira role configurada que o usuario tiver, na ordem de devdojo.admission.roles
+    private RoleLimits limitsOf(Authentication authentication) {
+        for (RoleLimits limits : roleLimits) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                if (limits.authority.equals(authority.getAuthority())) {
+                    return limits;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Mono<Void> tooManyRequests(ServerWebExchange exchange, long retryAfterNanos) {
+        long retryAfterSeconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
+    }
+
+    private static final class RoleLimits {
+
+        private final String authority;
+
+        private final long emissionIntervalNanos;
+
+        private final long burstToleranceNanos;
+
+        private final int maxConcurrent;
+
+        private final Counter rateRejected;
+
+        private final Counter concurrencyRejected;
+
+        private RoleLimits(String role, AdmissionProperties.Limits limits, MeterRegistry meterRegistry) {
+            // Zero ou negativo daria intervalo infinito ou negativo, para nao limitar basta tirar a role da lista
+            if (!(limits.getRequestsPerSecond() > 0)) {
+                throw new IllegalArgumentException("devdojo.admission.roles." + role
+                        + ".requests-per-second must be positive, got " + limits.getRequestsPerSecond());
+            }
+            this.authority = "ROLE_" + role.toUpperCase(Locale.ROOT);
+            this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / limits.getRequestsPerSecond());
+            this.burstToleranceNanos = emissionIntervalNanos * Math.max(limits.getBurst() - 1, 0);
+            this.maxConcurrent = limits.getMaxConcurrent();
+            this.rateRejected = rejectedCounter(meterRegistry, role, "rate");
+            this.concurrencyRejected = rejectedCounter(meterRegistry, role, "concurrency");
+        }
+
+        private static Counter rejectedCounter(MeterRegistry meterRegistry, String role, String reason) {
+            return Counter.builder(REJECTED_METRIC)
+                    .tag("role", role)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Estado de um par usuario e rota, atualizado so com CAS.
+     * A taxa segue o GCRA, equivalente ao token bucket: guarda o instante teorico da proxima requisicao
+     * em vez da contagem de fichas, assim um unico AtomicLong basta.
+     */
+    private static final class Admission {
+
+        private final RoleLimits limits;
+
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Admission(RoleLimits limits) {
+            this.limits = limits;
+        }
+
+        /**
+         * 0 quando a requisicao cabe na taxa, senao quantos nanos faltam para caber
+         */
+        long tryAcquireRate(long now) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long arrival = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                long wait = arrival - now - limits.burstToleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(current, arrival + limits.emissionIntervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean tryAcquireConcurrency() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limits.maxConcurrent) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void releaseConcurrency() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
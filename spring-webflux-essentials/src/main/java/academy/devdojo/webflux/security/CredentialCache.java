@@ -0,0 +1,95 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AuthProperties;
+import academy.devdojo.webflux.domain.DevDojoUser;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.function.Supplier;
+
+@Component
+public class CredentialCache implements AfterSaveCallback<DevDojoUser>, MeterBinder {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final AsyncCache<String, Authentication> cache;
+
+    private final SecretKeySpec digestKey;
+
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public CredentialCache(AuthProperties authProperties) {
+        AuthProperties.CredentialCache properties = authProperties.getCredentialCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync();
+
+        // Chave aleatoria por processo, a senha nunca fica em memoria e o digest nao serve fora deste processo
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.digestKey = new SecretKeySpec(key, ALGORITHM);
+    }
+
+    public String key(String username, String password) {
+        Mac mac = macs.get();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Logins concorrentes com a mesma credencial compartilham o mesmo future, apenas o primeiro verifica a senha.
+     * Falha ou resultado vazio nao ficam no cache, o proximo login verifica de novo
+     */
+    public Mono<Authentication> get(String key, Supplier<Mono<Authentication>> loader) {
+        return Mono.defer(() -> Mono.fromCompletionStage(cache.get(key, (k, executor) -> loader.get().toFuture())
+                .minimalCompletionStage()));
+    }
+
+    // Verificacoes ainda em andamento tambem saem, podem ter lido o usuario antes da alteracao
+    public void evict(String username) {
+        cache.asMap().values().removeIf(authentication -> !authentication.isDone()
+                || authentication.isCompletedExceptionally()
+                || authentication.join().getName().equals(username));
+    }
+
+    @Override
+    public Publisher<DevDojoUser> onAfterSave(DevDojoUser user, OutboundRow outboundRow, SqlIdentifier table) {
+        evict(user.getUsername());
+        return Mono.just(user);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(cache.synchronous(), "credentials", Tags.empty()).bindTo(registry);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(digestKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package academy.devdojo.webflux.security;
+
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Equivalente gRPC do TokenAuthenticationWebFilter: o bearer token do metadata authorization e verificado uma vez
+ * por chamada, nao por mensagem. Todo metodo exige um token valido, exceto os servicos declarados publicos
+ * (health, reflection), e os metodos mapeados exigem tambem a role. Metodo novo sem mapeamento fica fechado.
+ */
+public class GrpcTokenAuthenticationInterceptor implements ServerInterceptor {
+
+    static final Metadata.Key<String> AUTHORIZATION = Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+
+    private final Map<String, String> requiredRoles;
+
+    private final Set<String> publicServices;
+
+    private final Timer success;
+
+    private final Timer failure;
+
+    public GrpcTokenAuthenticationInterceptor(TokenService tokenService, MeterRegistry meterRegistry,
+                                              Map<String, String> requiredRoles, Set<String> publicServices) {
+        this.tokenService = tokenService;
+        this.requiredRoles = requiredRoles;
+        this.publicServices = publicServices;
+        this.success = TimedReactiveAuthenticationManager.timer(meterRegistry, "grpc-token", "success");
+        this.failure = TimedReactiveAuthenticationManager.timer(meterRegistry, "grpc-token", "failure");
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        if (publicServices.contains(method.getServiceName())) {
+            return next.startCall(call, headers);
+        }
+
+        String authorization = headers.get(AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return close(call, Status.UNAUTHENTICATED.withDescription("Bearer token required"));
+        }
+
+        long start = System.nanoTime();
+        Optional<Authentication> verified = tokenService.verify(authorization.substring(BEARER.length()).trim());
+        (verified.isPresent() ? success : failure).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (verified.isEmpty()) {
+            return close(call, Status.UNAUTHENTICATED.withDescription("Invalid token"));
+        }
+        String requiredRole = requiredRoles.get(method.getFullMethodName());
+        if (requiredRole != null && !hasRole(verified.get(), requiredRole)) {
+            return close(call, Status.PERMISSION_DENIED.withDescription("Role " + requiredRole + " required"));
+        }
+        return next.startCall(call, headers);
+    }
+
+    private static boolean hasRole(Authentication authentication, String role) {
+        String authority = "ROLE_" + role;
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(authority::equals);
+    }
+
+    private static <ReqT, RespT> ServerCall.Listener<ReqT> close(ServerCall<ReqT, RespT> call, Status status) {
+        call.close(status, new Metadata());
+        return new ServerCall.Listener<>() {
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package academy.devdojo.webflux.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mede o tempo de autenticacao da cadeia do SecurityConfig, com as tags mechanism e outcome (success, failure, overloaded, error).
+ */
+public class TimedReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    public static final String METRIC = "auth.authentication";
+
+    private final ReactiveAuthenticationManager delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer success;
+
+    private final Timer failure;
+
+    private final Timer overloaded;
+
+    private final Timer error;
+
+    public TimedReactiveAuthenticationManager(ReactiveAuthenticationManager delegate, MeterRegistry meterRegistry, String mechanism) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.success = timer(meterRegistry, mechanism, "success");
+        this.failure = timer(meterRegistry, mechanism, "failure");
+        this.overloaded = timer(meterRegistry, mechanism, "overloaded");
+        this.error = timer(meterRegistry, mechanism, "error");
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return delegate.authenticate(authentication)
+                    .doOnSuccess(authenticated -> sample.stop(authenticated == null ? failure : success))
+                    .doOnError(e -> sample.stop(errorTimer(e)));
+        });
+    }
+
+    private Timer errorTimer(Throwable e) {
+        if (e instanceof AuthenticationException) {
+            return failure;
+        }
+        if (e instanceof ResponseStatusException && ((ResponseStatusException) e).getStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+            return overloaded;
+        }
+        return error;
+    }
+
+    static Timer timer(MeterRegistry meterRegistry, String mechanism, String outcome) {
+        return Timer.builder(METRIC)
+                .tag("mechanism", mechanism)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,55 @@
+package academy.devdojo.webflux.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+public class TokenAuthenticationWebFilter implements WebFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+
+    private final Timer success;
+
+    private final Timer failure;
+
+    public TokenAuthenticationWebFilter(TokenService tokenService, MeterRegistry meterRegistry) {
+        this.tokenService = tokenService;
+        this.success = TimedReactiveAuthenticationManager.timer(meterRegistry, "token", "success");
+        this.failure = TimedReactiveAuthenticationManager.timer(meterRegistry, "token", "failure");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return chain.filter(exchange);
+        }
+
+        long start = System.nanoTime();
+        Optional<Authentication> verified = tokenService.verify(authorization.substring(BEARER.length()).trim());
+        (verified.isPresent() ? success : failure).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        return verified
+                .map(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .orElseGet(() -> unauthorized(exchange));
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,141 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AuthProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final String HEADER = encode("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectMapper objectMapper;
+
+    private final SecretKeySpec signingKey;
+
+    private final Duration ttl;
+
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public TokenService(AuthProperties authProperties, ObjectMapper objectMapper) {
+        AuthProperties.Token properties = authProperties.getToken();
+        this.objectMapper = objectMapper;
+        this.ttl = properties.getTtl();
+        this.signingKey = new SecretKeySpec(secret(properties.getSecret()), ALGORITHM);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public String issue(Authentication authentication) {
+        Instant now = Instant.now();
+        TokenClaims claims = new TokenClaims(
+                authentication.getName(),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()),
+                now.getEpochSecond(),
+                now.plus(ttl).getEpochSecond());
+        try {
+            String unsigned = HEADER + "." + encode(objectMapper.writeValueAsBytes(claims));
+            return unsigned + "." + encode(sign(unsigned));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write token claims", e);
+        }
+    }
+
+    /**
+     * Apenas assinatura e expiracao sao verificadas, sem acesso ao banco nem hash de senha.
+     */
+    public Optional<Authentication> verify(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0 || !token.startsWith(HEADER + ".")) {
+            return Optional.empty();
+        }
+        try {
+            String unsigned = token.substring(0, signatureStart);
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(sign(unsigned), signature)) {
+                return Optional.empty();
+            }
+
+            byte[] payload = Base64.getUrlDecoder().decode(unsigned.substring(HEADER.length() + 1));
+            TokenClaims claims = objectMapper.readValue(payload, TokenClaims.class);
+            if (claims.getExp() <= Instant.now().getEpochSecond()) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new UsernamePasswordAuthenticationToken(claims.getSub(), null,
+                    AuthorityUtils.createAuthorityList(claims.getRoles().toArray(new String[0]))));
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String unsigned) {
+        return macs.get().doFinal(unsigned.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static byte[] secret(String secret) {
+        if (StringUtils.hasText(secret)) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("devdojo.auth.token.secret is not set, tokens will only be accepted by this instance");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class TokenClaims {
+
+        private String sub;
+
+        private List<String> roles;
+
+        private long iat;
+
+        private long exp;
+    }
+}
@@ -0,0 +1,98 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.config.DatabaseProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Junta as buscas por id que chegam dentro da janela configurada e resolve todas com uma unica query.
+ * O FluxSink do Flux.create enfileira as buscas de varias threads numa fila MPSC e quem chega primeiro drena,
+ * nenhuma thread do event loop fica girando esperando a outra terminar de emitir.
+ * No maximo uma query por conexao do pool fica em andamento, os lotes seguintes esperam na fila.
+ */
+@Component
+public class AnimeBatchLoader implements DisposableBean {
+
+    private final AnimeRepository animeRepository;
+
+    private final DistributionSummary batchSize;
+
+    private FluxSink<PendingLoad> pendingLoads;
+
+    private final Disposable dispatcher;
+
+    public AnimeBatchLoader(AnimeRepository animeRepository, AnimeProperties animeProperties,
+                            DatabaseProperties databaseProperties, MeterRegistry meterRegistry) {
+        AnimeProperties.Loader properties = animeProperties.getLoader();
+        this.animeRepository = animeRepository;
+        this.batchSize = DistributionSummary.builder("anime.loader.batch.size")
+                .description("Ids resolved by each batched query")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // O subscribe e sincrono, pendingLoads ja esta atribuido quando o construtor termina
+        this.dispatcher = Flux.<PendingLoad>create(sink -> pendingLoads = sink)
+                .bufferTimeout(properties.getMaxBatchSize(), properties.getWindow())
+                .onBackpressureBuffer()
+                .flatMap(this::dispatch, databaseProperties.getPool().getMaxSize())
+                .subscribe();
+    }
+
+    public Mono<Anime> load(int id) {
+        return Mono.defer(() -> {
+            Sinks.One<Anime> result = Sinks.one();
+            pendingLoads.next(new PendingLoad(id, result));
+            return result.asMono();
+        });
+    }
+
+    private Mono<Void> dispatch(List<PendingLoad> loads) {
+        batchSize.record(loads.size());
+        Integer[] ids = loads.stream()
+                .map(PendingLoad::getId)
+                .distinct()
+                .toArray(Integer[]::new);
+
+        return animeRepository.findByIds(ids)
+                .collectMap(Anime::getId)
+                .doOnNext(animes -> loads.forEach(load -> load.complete(animes)))
+                .doOnError(error -> loads.forEach(load -> load.getResult().tryEmitError(error)))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.dispose();
+    }
+
+    @Value
+    private static class PendingLoad {
+
+        int id;
+
+        Sinks.One<Anime> result;
+
+        void complete(Map<Integer, Anime> animes) {
+            Anime anime = animes.get(id);
+            if (anime == null) {
+                result.tryEmitEmpty();
+            } else {
+                result.tryEmitValue(anime);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+@Component
+public class AnimeCache implements MeterBinder {
+
+    private final AsyncCache<Integer, Optional<Anime>> cache;
+
+    public AnimeCache(AnimeProperties animeProperties) {
+        AnimeProperties.Cache properties = animeProperties.getCache();
+        long ttl = properties.getTtl().toNanos();
+        long negativeTtl = properties.getNegativeTtl().toNanos();
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<Integer, Optional<Anime>>() {
+                    @Override
+                    public long expireAfterCreate(Integer id, Optional<Anime> anime, long currentTime) {
+                        return anime.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer id, Optional<Anime> anime, long currentTime, long currentDuration) {
+                        return anime.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer id, Optional<Anime> anime, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Buscas concorrentes pelo mesmo id compartilham o mesmo future, apenas a primeira chama o loader.
+     */
+    public Mono<Anime> get(int id, IntFunction<Mono<Anime>> loader) {
+        return Mono.defer(() -> Mono.fromCompletionStage(cache.get(id, (key, executor) -> load(key, loader))
+                        .minimalCompletionStage()))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private CompletableFuture<Optional<Anime>> load(int id, IntFunction<Mono<Anime>> loader) {
+        return loader.apply(id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture();
+    }
+
+    public void put(Anime anime) {
+        if (anime.getId() != null) {
+            cache.put(anime.getId(), CompletableFuture.completedFuture(Optional.of(anime)));
+        }
+    }
+
+    public void invalidate(int id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(cache.synchronous(), "animes", Tags.empty()).bindTo(registry);
+    }
+}
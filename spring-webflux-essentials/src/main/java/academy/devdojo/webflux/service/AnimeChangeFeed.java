@@ -0,0 +1,122 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mudancas gravadas por esta instancia, para quem hoje faz polling em GET /animes.
+ * Um sink multicast com replay limitado guarda as ultimas replaySize mudancas: quem reconecta com Last-Event-ID
+ * recebe o que perdeu, e quem ficou para tras alem do buffer, ou vem de antes de um restart, recebe um RESET na hora.
+ * Quem escreve nunca espera assinante: cada um tem a propria fila limitada e, se ela enche, recebe um RESET
+ * e e desconectado.
+ */
+@Slf4j
+@Component
+public class AnimeChangeFeed {
+
+    public static final String SUBSCRIBERS_METRIC = "anime.changes.subscribers";
+
+    public static final String DROPPED_METRIC = "anime.changes.dropped";
+
+    private final Sinks.Many<AnimeChange> sink;
+
+    // Semeada com o relogio para continuar crescendo depois de um restart, um Last-Event-ID anterior vira RESET
+    private final long seed = System.currentTimeMillis() * 1000;
+
+    private final AtomicLong sequence = new AtomicLong(seed);
+
+    private final int replaySize;
+
+    private final int subscriberBuffer;
+
+    private final Duration heartbeat;
+
+    private final Counter dropped;
+
+    public AnimeChangeFeed(AnimeProperties animeProperties, MeterRegistry meterRegistry) {
+        AnimeProperties.Changes changes = animeProperties.getChanges();
+        this.sink = Sinks.many().replay().limit(changes.getReplaySize());
+        this.replaySize = changes.getReplaySize();
+        this.subscriberBuffer = changes.getSubscriberBuffer();
+        this.heartbeat = changes.getHeartbeat();
+        this.dropped = meterRegistry.counter(DROPPED_METRIC);
+        Gauge.builder(SUBSCRIBERS_METRIC, sink, Sinks.Many::currentSubscriberCount).register(meterRegistry);
+    }
+
+    public void published(AnimeChange.Type type, Anime anime) {
+        emit(type, anime.getId(), anime);
+    }
+
+    public void deleted(int id) {
+        emit(AnimeChange.Type.DELETED, id, null);
+    }
+
+    public long latestSequence() {
+        return sequence.get();
+    }
+
+    public Duration getHeartbeat() {
+        return heartbeat;
+    }
+
+    /**
+     * Sem Last-Event-ID so o que acontecer a partir de agora, com ele tudo depois dessa sequencia
+     */
+    public Flux<AnimeChange> changes(@Nullable Long lastEventId) {
+        return Flux.defer(() -> {
+            long latest = sequence.get();
+            // As sequencias sao continuas a partir da semente, o replay guarda as ultimas replaySize
+            long oldest = Math.max(seed + 1, latest - replaySize + 1);
+            if (lastEventId != null && (lastEventId < oldest - 1 || lastEventId > latest)) {
+                // Perdido ou de outra execucao: o RESET sai agora, sem esperar a proxima escrita
+                return changesAfter(oldest - 1).startWith(reset(oldest - 1));
+            }
+            return changesAfter(lastEventId == null ? latest : lastEventId);
+        });
+    }
+
+    private Flux<AnimeChange> changesAfter(long after) {
+        return sink.asFlux()
+                .filter(change -> change.getSequence() > after)
+                // Escritas entre a leitura da sequencia e a assinatura podem ter tirado mudancas do replay
+                .switchOnFirst((first, rest) -> first.hasValue() && first.get().getSequence() > after + 1
+                        ? rest.startWith(reset(first.get().getSequence() - 1))
+                        : rest)
+                .onBackpressureBuffer(subscriberBuffer)
+                .onErrorResume(Exceptions::isOverflow, error -> {
+                    dropped.increment();
+                    log.debug("Dropping slow change feed subscriber after {} queued changes", subscriberBuffer);
+                    // A fila foi descartada, o RESET avisa o cliente da lacuna antes de fechar
+                    return Flux.just(reset(sequence.get()));
+                });
+    }
+
+    // Serializado: o sink nao aceita emissoes concorrentes e a sequencia sai na mesma ordem do replay
+    private synchronized void emit(AnimeChange.Type type, Integer id, @Nullable Anime anime) {
+        AnimeChange change = new AnimeChange(sequence.incrementAndGet(), type, id, anime);
+        Sinks.EmitResult result = sink.tryEmitNext(change);
+        if (result.isFailure()) {
+            log.warn("Could not publish anime change {}: {}", change.getSequence(), result);
+        }
+    }
+
+    private static AnimeChange reset(long sequence) {
+        return AnimeChange.builder()
+                .sequence(sequence)
+                .type(AnimeChange.Type.RESET)
+                .build();
+    }
+}
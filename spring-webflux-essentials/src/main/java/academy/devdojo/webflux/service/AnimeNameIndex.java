@@ -0,0 +1,366 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Indice em memoria dos nomes para o autocomplete.
+ * A base fica em arrays ordenados de nomes e ids primitivos, as escritas vao para uma camada pequena
+ * que e juntada a base em background quando passa do limite de compactacao. Leituras nao usam lock,
+ * leem a geracao atual.
+ */
+@Component
+public class AnimeNameIndex {
+
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    private final int compactionThreshold;
+
+    private final Executor compactionExecutor;
+
+    private volatile Generation generation = Generation.EMPTY;
+
+    private volatile boolean ready;
+
+    // Escritas feitas durante uma compactacao, reaplicadas sobre a base compactada. null sem compactacao em andamento
+    private List<Write> writesDuringCompaction;
+
+    // Escritas feitas durante uma carga, reaplicadas sobre a base carregada. null sem carga em andamento
+    private List<Write> writesDuringReload;
+
+    // Muda a cada replaceAll, uma compactacao da base anterior e descartada
+    private long baseVersion;
+
+    @Autowired
+    public AnimeNameIndex(AnimeProperties animeProperties) {
+        this(animeProperties, ForkJoinPool.commonPool());
+    }
+
+    AnimeNameIndex(AnimeProperties animeProperties, Executor compactionExecutor) {
+        this.compactionThreshold = animeProperties.getSuggest().getCompactionThreshold();
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    /**
+     * false ate a primeira carga completa, antes disso o indice so conhece as escritas feitas por esta instancia
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Chamado antes de ler o banco: as escritas a partir daqui podem nao estar na leitura e sao guardadas
+     * para o replaceAll
+     */
+    public synchronized void beginReload() {
+        if (writesDuringReload == null) {
+            writesDuringReload = new ArrayList<>();
+        }
+    }
+
+    /**
+     * A carga falhou ou foi cancelada, as escritas continuam valendo sobre a base atual
+     */
+    public synchronized void abandonReload() {
+        writesDuringReload = null;
+    }
+
+    /**
+     * Troca a base pelos animes carregados do banco. As escritas anteriores ao beginReload ja estao na leitura e
+     * saem da camada, senao um nome antigo escrito aqui esconderia um mais novo gravado por outra instancia.
+     * As feitas durante a carga continuam valendo sobre a base, exceto as que ela ja reflete
+     */
+    public void replaceAll(int[] ids, String[] names) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.parallelSort(order, (a, b) -> compare(names[a], ids[a], names[b], ids[b]));
+
+        int[] sortedIds = new int[ids.length];
+        String[] sortedNames = new String[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedNames[i] = names[order[i]];
+        }
+
+        int[] idsInBase = ids.clone();
+        Arrays.parallelSort(idsInBase);
+
+        // Ordena fora do lock, as escritas so esperam a troca da base
+        synchronized (this) {
+            Generation next = new Generation(sortedNames, sortedIds, Generation.EMPTY.overlayNames,
+                    Generation.EMPTY.overlayIds, Generation.EMPTY.stale);
+            if (writesDuringReload != null) {
+                for (Write write : writesDuringReload) {
+                    if (!write.isReflectedBy(next, idsInBase)) {
+                        next = write.applyTo(next);
+                    }
+                }
+            }
+            writesDuringReload = null;
+            generation = next;
+            baseVersion++;
+            ready = true;
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized void put(int id, String name) {
+        write(new Write(id, name));
+    }
+
+    public synchronized void remove(int id) {
+        write(new Write(id, null));
+    }
+
+    private void write(Write write) {
+        generation = write.applyTo(generation);
+        if (writesDuringCompaction != null) {
+            writesDuringCompaction.add(write);
+        }
+        if (writesDuringReload != null) {
+            writesDuringReload.add(write);
+        }
+        compactIfNeeded();
+    }
+
+    // A compactacao percorre a base inteira, roda fora do lock para nao segurar as escritas
+    private void compactIfNeeded() {
+        Generation snapshot = generation;
+        if (writesDuringCompaction != null || snapshot.overlayIds.length + snapshot.stale.length <= compactionThreshold) {
+            return;
+        }
+        long snapshotBaseVersion = baseVersion;
+        writesDuringCompaction = new ArrayList<>();
+        compactionExecutor.execute(() -> {
+            Generation compacted = null;
+            try {
+                compacted = snapshot.compact();
+            } finally {
+                finishCompaction(compacted, snapshotBaseVersion);
+            }
+        });
+    }
+
+    private synchronized void finishCompaction(Generation compacted, long snapshotBaseVersion) {
+        List<Write> writes = writesDuringCompaction;
+        writesDuringCompaction = null;
+        if (compacted == null || snapshotBaseVersion != baseVersion) {
+            return;
+        }
+        Generation next = compacted;
+        for (Write write : writes) {
+            next = write.applyTo(next);
+        }
+        generation = next;
+    }
+
+    public List<AnimeSuggestion> suggest(String prefix, int limit) {
+        Generation current = generation;
+        List<AnimeSuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+
+        int base = lowerBound(current.names, prefix);
+        int overlay = lowerBound(current.overlayNames, prefix);
+        while (suggestions.size() < limit) {
+            while (matches(current.names, base, prefix) && current.isStale(current.ids[base])) {
+                base++;
+            }
+            boolean hasBase = matches(current.names, base, prefix);
+            boolean hasOverlay = matches(current.overlayNames, overlay, prefix);
+            if (!hasBase && !hasOverlay) {
+                break;
+            }
+            if (hasOverlay && (!hasBase || compare(current.overlayNames[overlay], current.overlayIds[overlay],
+                    current.names[base], current.ids[base]) < 0)) {
+                suggestions.add(new AnimeSuggestion(current.overlayIds[overlay], current.overlayNames[overlay]));
+                overlay++;
+            } else {
+                suggestions.add(new AnimeSuggestion(current.ids[base], current.names[base]));
+                base++;
+            }
+        }
+        return suggestions;
+    }
+
+    private static int compare(String name, int id, String otherName, int otherId) {
+        int byName = ORDER.compare(name, otherName);
+        return byName != 0 ? byName : Integer.compare(id, otherId);
+    }
+
+    // Primeira posicao com nome >= prefixo, todos os nomes que comecam com o prefixo estao em sequencia a partir dela
+    private static int lowerBound(String[] names, String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ORDER.compare(names[middle], prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean matches(String[] names, int position, String prefix) {
+        return position < names.length && names[position].regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static final class Write {
+
+        private final int id;
+
+        // null quando o anime foi removido
+        private final String name;
+
+        private Write(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        private Generation applyTo(Generation generation) {
+            return name == null ? generation.without(id) : generation.with(id, name);
+        }
+
+        // Remocao de um id que nao esta na base ou nome igual ao da base, a escrita nao muda nada
+        private boolean isReflectedBy(Generation generation, int[] idsInBase) {
+            if (name == null) {
+                return Arrays.binarySearch(idsInBase, id) < 0;
+            }
+            int position = generation.positionOf(name, id);
+            return position < generation.ids.length && generation.ids[position] == id && generation.names[position].equals(name);
+        }
+    }
+
+    /**
+     * Estado imutavel do indice: base ordenada, escritas recentes ordenadas e os ids da base que foram alterados
+     */
+    private static final class Generation {
+
+        private static final Generation EMPTY = new Generation(new String[0], new int[0], new String[0], new int[0], new int[0]);
+
+        private final String[] names;
+
+        private final int[] ids;
+
+        private final String[] overlayNames;
+
+        private final int[] overlayIds;
+
+        // ids ordenados cujas linhas na base estao desatualizadas ou removidas
+        private final int[] stale;
+
+        private Generation(String[] names, int[] ids, String[] overlayNames, int[] overlayIds, int[] stale) {
+            this.names = names;
+            this.ids = ids;
+            this.overlayNames = overlayNames;
+            this.overlayIds = overlayIds;
+            this.stale = stale;
+        }
+
+        private boolean isStale(int id) {
+            return Arrays.binarySearch(stale, id) >= 0;
+        }
+
+        // Primeira posicao da base com (nome, id) >= os informados
+        private int positionOf(String name, int id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(names[middle], ids[middle], name, id) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private Generation with(int id, String name) {
+            Generation withoutId = without(id);
+            String[] currentNames = withoutId.overlayNames;
+            int[] currentIds = withoutId.overlayIds;
+
+            int position = 0;
+            while (position < currentIds.length && compare(currentNames[position], currentIds[position], name, id) < 0) {
+                position++;
+            }
+            String[] newNames = new String[currentNames.length + 1];
+            int[] newIds = new int[currentIds.length + 1];
+            System.arraycopy(currentNames, 0, newNames, 0, position);
+            System.arraycopy(currentIds, 0, newIds, 0, position);
+            newNames[position] = name;
+            newIds[position] = id;
+            System.arraycopy(currentNames, position, newNames, position + 1, currentNames.length - position);
+            System.arraycopy(currentIds, position, newIds, position + 1, currentIds.length - position);
+
+            return new Generation(names, ids, newNames, newIds, withoutId.stale);
+        }
+
+        private Generation without(int id) {
+            int position = -1;
+            for (int i = 0; i < overlayIds.length && position < 0; i++) {
+                if (overlayIds[i] == id) {
+                    position = i;
+                }
+            }
+            String[] newNames = overlayNames;
+            int[] newIds = overlayIds;
+            if (position >= 0) {
+                newNames = new String[overlayNames.length - 1];
+                newIds = new int[overlayIds.length - 1];
+                System.arraycopy(overlayNames, 0, newNames, 0, position);
+                System.arraycopy(overlayIds, 0, newIds, 0, position);
+                System.arraycopy(overlayNames, position + 1, newNames, position, newNames.length - position);
+                System.arraycopy(overlayIds, position + 1, newIds, position, newIds.length - position);
+            }
+
+            int[] newStale = stale;
+            int stalePosition = Arrays.binarySearch(stale, id);
+            if (stalePosition < 0) {
+                int insertAt = -stalePosition - 1;
+                newStale = new int[stale.length + 1];
+                System.arraycopy(stale, 0, newStale, 0, insertAt);
+                newStale[insertAt] = id;
+                System.arraycopy(stale, insertAt, newStale, insertAt + 1, stale.length - insertAt);
+            }
+            return new Generation(names, ids, newNames, newIds, newStale);
+        }
+
+        // Junta a base sem os ids alterados com as escritas recentes, mantendo a ordem
+        private Generation compact() {
+            int capacity = ids.length + overlayIds.length;
+            String[] mergedNames = new String[capacity];
+            int[] mergedIds = new int[capacity];
+
+            int size = 0;
+            int base = 0;
+            int overlay = 0;
+            while (base < ids.length || overlay < overlayIds.length) {
+                if (base < ids.length && isStale(ids[base])) {
+                    base++;
+                } else if (overlay < overlayIds.length && (base == ids.length
+                        || compare(overlayNames[overlay], overlayIds[overlay], names[base], ids[base]) < 0)) {
+                    mergedNames[size] = overlayNames[overlay];
+                    mergedIds[size++] = overlayIds[overlay++];
+                } else {
+                    mergedNames[size] = names[base];
+                    mergedIds[size++] = ids[base++];
+                }
+            }
+            return new Generation(Arrays.copyOf(mergedNames, size), Arrays.copyOf(mergedIds, size),
+                    EMPTY.overlayNames, EMPTY.overlayIds, EMPTY.stale);
+        }
+    }
+}
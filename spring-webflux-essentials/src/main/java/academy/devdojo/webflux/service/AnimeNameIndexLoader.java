@@ -0,0 +1,59 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnimeNameIndexLoader {
+
+    private final AnimeRepository animeRepository;
+
+    private final AnimeProperties animeProperties;
+
+    private final AnimeNameIndex animeNameIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        load().subscribe(
+                count -> log.info("Anime name index loaded with {} names", count),
+                error -> log.error("Could not load the anime name index, suggestions will use the database", error));
+    }
+
+    public Mono<Integer> load() {
+        int fetchSize = animeProperties.getStream().getFetchSize();
+        return Flux.defer(() -> {
+                    animeNameIndex.beginReload();
+                    return animeRepository.streamAll(fetchSize);
+                })
+                .collectList()
+                // A ordenacao de toda a base e CPU pura, sai da thread de IO do driver
+                .publishOn(Schedulers.parallel())
+                .map(this::replaceIndex)
+                .doOnError(error -> animeNameIndex.abandonReload())
+                .doOnCancel(animeNameIndex::abandonReload);
+    }
+
+    private int replaceIndex(List<Anime> animes) {
+        int[] ids = new int[animes.size()];
+        String[] names = new String[animes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = animes.get(i).getId();
+            names[i] = animes.get(i).getName();
+        }
+        animeNameIndex.replaceAll(ids, names);
+        return ids.length;
+    }
+}
@@ -1,62 +1,395 @@
 package academy.devdojo.webflux.service;
 
+import academy.devdojo.webflux.config.AnimeProperties;
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import academy.devdojo.webflux.domain.AnimeChunkAck;
+import academy.devdojo.webflux.domain.AnimePage;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import academy.devdojo.webflux.exception.DomainError;
+import academy.devdojo.webflux.exception.DomainErrors;
 import academy.devdojo.webflux.repository.AnimeRepository;
 import io.netty.util.internal.StringUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 @Service
 @RequiredArgsConstructor
 public class AnimeService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final int MAX_SEARCH_LENGTH = 100;
+
+    /**
+     * Maior offset aceito no cursor da busca, o OFFSET percorre e descarta todas as linhas anteriores
+     */
+    public static final int MAX_SEARCH_OFFSET = 10_000;
+
+    public static final String METRIC = "anime.service";
+
+    /**
+     * Marca no meio do upload que o prazo do chunk venceu, comparado so por identidade
+     */
+    private static final Anime CHUNK_DEADLINE = new Anime();
+
     private final AnimeRepository animeRepository;
 
+    private final AnimeProperties animeProperties;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final AnimeCache animeCache;
+
+    private final AnimeBatchLoader animeBatchLoader;
+
+    private final AnimeNameIndex animeNameIndex;
+
+    private final AnimeChangeFeed animeChangeFeed;
+
+    private final AnimeSnapshot animeSnapshot;
+
     public Flux<Anime> findAll() {
-        return animeRepository.findAll();
+        return timed(Flux.defer(() -> readFromSnapshot() ? animeSnapshot.all() : animeRepository.findAll()), "findAll");
+    }
+
+    /**
+     * Fingerprint do catalogo e os animes da mesma origem, escolhida uma vez: com a copia local pronta o fingerprint
+     * e o da geracao servida, senao o do banco. Os animes so sao lidos quando o Flux e assinado
+     */
+    public Mono<Tuple2<String, Flux<Anime>>> findAllWithFingerprint() {
+        return timed(Mono.defer(() -> readFromSnapshot()
+                ? Mono.just(Tuples.of(animeSnapshot.fingerprint(), timed(animeSnapshot.all(), "findAll")))
+                : animeRepository.fingerprint()
+                        .map(fingerprint -> Tuples.of(fingerprint, timed(animeRepository.findAll(), "findAll")))),
+                "findAllFingerprint");
+    }
+
+    public Flux<Anime> streamAll() {
+        int fetchSize = animeProperties.getStream().getFetchSize();
+        return timed(animeRepository.streamAll(fetchSize)
+                .limitRate(fetchSize), "streamAll");
+    }
+
+    public Mono<AnimePage> findPage(String cursor, int size, boolean exactTotal) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        return timed(Mono.fromCallable(() -> decodeCursor(cursor))
+                .flatMap(after -> Mono.zip(
+                        animeRepository.findPage(after, limit + 1).collectList(),
+                        exactTotal ? animeRepository.count() : animeRepository.estimateCount()))
+                .map(tuple -> toPage(tuple.getT1(), limit, tuple.getT2(), !exactTotal)), "findPage");
+    }
+
+    private AnimePage toPage(List<Anime> animes, int limit, long total, boolean estimatedTotal) {
+        boolean hasNext = animes.size() > limit;
+        List<Anime> content = hasNext ? animes.subList(0, limit) : animes;
+        return AnimePage.builder()
+                .content(content)
+                .next(hasNext ? encodeCursor(content.get(limit - 1).getId()) : null)
+                .total(total)
+                .estimatedTotal(estimatedTotal)
+                .build();
+    }
+
+    /**
+     * Busca por trecho do nome, paginada por offset porque a ordem e por relevancia e nao por id.
+     * Sem exactTotal o total informado e apenas o minimo ja conhecido, evitando um segundo percurso do indice.
+     */
+    public Mono<AnimePage> search(String query, String cursor, int size, boolean exactTotal) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        return timed(Mono.fromCallable(() -> searchTerm(query))
+                .zipWith(Mono.fromCallable(() -> decodeSearchOffset(cursor)))
+                .flatMap(termAndOffset -> searchPage(termAndOffset.getT1(), termAndOffset.getT2(), limit, exactTotal)), "search");
+    }
+
+    private Mono<AnimePage> searchPage(String term, int offset, int limit, boolean exactTotal) {
+        String escaped = escapeLike(term);
+        String pattern = "%" + escaped + "%";
+
+        return animeRepository.search(term, pattern, escaped + "%", limit + 1, offset)
+                .collectList()
+                .flatMap(animes -> {
+                    boolean hasNext = animes.size() > limit;
+                    boolean nextAllowed = offset + limit <= MAX_SEARCH_OFFSET;
+                    Mono<Long> total = exactTotal
+                            ? animeRepository.countSearch(pattern)
+                            : Mono.just((long) offset + animes.size());
+                    return total.map(count -> AnimePage.builder()
+                            .content(hasNext ? animes.subList(0, limit) : animes)
+                            .next(hasNext && nextAllowed ? encodeCursor(offset + limit) : null)
+                            .total(count)
+                            .estimatedTotal(!exactTotal)
+                            .build());
+                });
+    }
+
+    /**
+     * Autocomplete servido do indice em memoria, vai ao banco so enquanto a primeira carga do indice nao terminou
+     */
+    public Flux<AnimeSuggestion> suggest(String prefix, int limit) {
+        int maxResults = Math.min(Math.max(limit, 1), animeProperties.getSuggest().getMaxResults());
+
+        return timed(Mono.fromCallable(() -> searchTerm(prefix))
+                .flatMapMany(term -> animeNameIndex.isReady()
+                        ? Flux.fromIterable(animeNameIndex.suggest(term, maxResults))
+                        : suggestFromDatabase(term, maxResults)), "suggest");
+    }
+
+    private Flux<AnimeSuggestion> suggestFromDatabase(String term, int limit) {
+        String pattern = escapeLike(term) + "%";
+        return animeRepository.search(term, pattern, pattern, limit, 0)
+                .map(anime -> new AnimeSuggestion(anime.getId(), anime.getName()));
+    }
+
+    private String searchTerm(String query) {
+        String term = query == null ? "" : query.strip();
+        if (term.isEmpty() || term.length() > MAX_SEARCH_LENGTH) {
+            throw DomainError.INVALID_SEARCH.exception();
+        }
+        return term;
+    }
+
+    private String escapeLike(String term) {
+        return term.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    private String encodeCursor(int position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int decodeCursor(String cursor) {
+        if (StringUtil.isNullOrEmpty(cursor)) {
+            return 0;
+        }
+        int position;
+        try {
+            position = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw DomainError.INVALID_CURSOR.exception();
+        }
+        // Os cursores gerados aqui nunca sao negativos, um negativo viraria um OFFSET invalido no Postgres
+        if (position < 0) {
+            throw DomainError.INVALID_CURSOR.exception();
+        }
+        return position;
+    }
+
+    private int decodeSearchOffset(String cursor) {
+        int offset = decodeCursor(cursor);
+        if (offset > MAX_SEARCH_OFFSET) {
+            throw DomainError.INVALID_CURSOR.exception();
+        }
+        return offset;
     }
 
     public Mono<Anime> findById(int id){
-        return animeRepository.findById(id)
-                .switchIfEmpty(monoResponseStatusNotFoundException());
+        return timed(Mono.defer(() -> readFromSnapshot()
+                        ? Mono.justOrEmpty(animeSnapshot.get(id))
+                        : animeCache.get(id, animeLoader()))
+                .switchIfEmpty(monoResponseStatusNotFoundException()), "findById");
+    }
+
+    // A copia local so responde depois de aberta ou recarregada, ate la as leituras continuam no banco
+    private boolean readFromSnapshot() {
+        return animeProperties.getSnapshot().getReads() == AnimeProperties.ReadSource.SNAPSHOT && animeSnapshot.isReady();
+    }
+
+    private IntFunction<Mono<Anime>> animeLoader() {
+        return animeProperties.getLoader().isEnabled() ? animeBatchLoader::load : animeRepository::findById;
+    }
+
+    public Flux<Anime> findByIds(List<Integer> ids) {
+        if (ids.size() > MAX_PAGE_SIZE) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many ids, the limit is " + MAX_PAGE_SIZE));
+        }
+        Integer[] distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(Integer[]::new);
+
+        return timed(animeRepository.findByIds(distinctIds)
+                .doOnNext(animeCache::put), "findByIds");
     }
 
     private <T> Mono<T> monoResponseStatusNotFoundException() {
-        return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found"));
+        return DomainErrors.error(DomainError.ANIME_NOT_FOUND);
     }
 
+    /**
+     * Sempre cria: id e versao vindos do cliente sao descartados, com eles o @Version faria um INSERT com o id
+     * informado ou um UPDATE que falha. Atualizar e com o PUT.
+     */
     public Mono<Anime> save(Anime anime) {
-        return animeRepository.save(anime);
+        return timed(animeRepository.save(anime.withId(null).withVersion(null))
+                .doOnNext(saved -> written(saved, AnimeChange.Type.CREATED)), "save");
     }
 
     public Mono<Void> update(Anime anime){
-        return findById(anime.getId())
-                .flatMap(validAnime -> animeRepository.save(anime))
-                .then();
+        return update(anime, null);
+    }
+
+    /**
+     * Atualiza com um unico UPDATE ... RETURNING, quando expectedVersion vem preenchida so escreve se a versao conferir
+     */
+    public Mono<Void> update(Anime anime, Integer expectedVersion){
+        Mono<Anime> updated = expectedVersion == null
+                ? animeRepository.updateName(anime.getId(), anime.getName())
+                : animeRepository.updateNameIfVersion(anime.getId(), anime.getName(), expectedVersion);
+
+        return timed(updated
+                .switchIfEmpty(Mono.defer(() -> writeFailure(anime.getId(), expectedVersion)))
+                .doOnNext(saved -> written(saved, AnimeChange.Type.UPDATED))
+                .doOnError(error -> animeCache.invalidate(anime.getId()))
+                .then(), "update");
     }
 
     public Mono<Void> delete(int id) {
-        return findById(id)
-                .flatMap(animeRepository::delete)
-                .then();
+        return delete(id, null);
+    }
+
+    public Mono<Void> delete(int id, Integer expectedVersion) {
+        Mono<Integer> deleted = expectedVersion == null
+                ? animeRepository.deleteAnimeById(id)
+                : animeRepository.deleteAnimeByIdIfVersion(id, expectedVersion);
+
+        return timed(deleted
+                .flatMap(count -> count == 0
+                        ? writeFailure(id, expectedVersion)
+                        : Mono.fromRunnable(() -> {
+                            animeNameIndex.remove(id);
+                            animeSnapshot.remove(id);
+                            animeChangeFeed.deleted(id);
+                        }))
+                .doFinally(signal -> animeCache.invalidate(id))
+                .then(), "delete");
+    }
+
+    // Animes gravados por esta instancia entram no cache, no indice de nomes, na copia local e no feed de mudancas
+    private void written(Anime anime, AnimeChange.Type type) {
+        animeCache.put(anime);
+        if (anime.getId() != null) {
+            animeNameIndex.put(anime.getId(), anime.getName());
+        }
+        animeSnapshot.put(anime);
+        animeChangeFeed.published(type, anime);
+    }
+
+    // Nenhuma linha afetada: sem versao esperada o anime nao existe, com versao so uma consulta extra diferencia 404 de 412
+    private <T> Mono<T> writeFailure(int id, Integer expectedVersion) {
+        if (expectedVersion == null) {
+            return monoResponseStatusNotFoundException();
+        }
+        return animeRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? DomainErrors.<T>error(DomainError.VERSION_MISMATCH)
+                        : monoResponseStatusNotFoundException());
     }
 
-    @Transactional
     public Flux<Anime> saveAll(List<Anime> animes) {
-        return animeRepository.saveAll(animes)
-                .doOnNext(this::throwResponseStatusExceptionWhenEmptyName);
+        AnimeProperties.Batch batch = animeProperties.getBatch();
+        boolean transactionPerChunk = batch.getTransactionScope() == AnimeProperties.TransactionScope.CHUNK;
+
+        Flux<Anime> saved = Flux.defer(() -> {
+            animes.forEach(this::throwResponseStatusExceptionWhenEmptyName);
+            return Flux.fromIterable(animes)
+                    .buffer(batch.getChunkSize())
+                    .concatMap(chunk -> transactionPerChunk
+                            ? insertChunk(chunk)
+                            : animeRepository.insertAll(chunk));
+        });
+
+        // So popula o cache e o feed depois do commit, um rollback nao pode deixar animes inexistentes no cache
+        return timed((transactionPerChunk ? saved : saved.as(transactionalOperator::transactional))
+                .collectList()
+                .doOnNext(savedAnimes -> savedAnimes.forEach(anime -> written(anime, AnimeChange.Type.CREATED)))
+                .flatMapIterable(Function.identity()), "saveAll");
+    }
+
+    public Flux<AnimeChunkAck> ingest(Flux<Anime> animes) {
+        AnimeProperties.Batch batch = animeProperties.getBatch();
+        return timed(animes
+                .doOnNext(this::throwResponseStatusExceptionWhenEmptyName)
+                .transform(upload -> chunks(upload, batch.getChunkSize(), batch.getChunkWindow()))
+                .index()
+                .concatMap(chunk -> insertChunk(chunk.getT2())
+                        .collectList()
+                        .doOnNext(saved -> saved.forEach(anime -> written(anime, AnimeChange.Type.CREATED)))
+                        .map(saved -> toChunkAck(chunk.getT1(), saved)), batch.getMaxInFlightChunks()), "ingest");
+    }
+
+    /**
+     * Fecha o chunk ao chegar em chunkSize ou quando o prazo vence com linhas pendentes, o que vier primeiro.
+     * Faz o papel do bufferTimeout, que no Reactor 3.4 falha com OverflowException quando o prazo vence
+     * antes do banco pedir o proximo chunk. Aqui o prazo entra no upload como marcador e espera a demanda
+     * junto com os animes, o merge com prefetch 1 e o onBackpressureLatest seguram no maximo dois marcadores
+     */
+    private static Flux<List<Anime>> chunks(Flux<Anime> animes, int chunkSize, Duration window) {
+        Flux<Anime> deadlines = Flux.interval(window)
+                .map(tick -> CHUNK_DEADLINE)
+                .onBackpressureLatest();
+        return animes.publish(upload -> {
+                    int[] pending = {0};
+                    return Flux.merge(1, upload, deadlines.takeUntilOther(upload.then()))
+                            .bufferUntil(anime -> {
+                                boolean cut = anime == CHUNK_DEADLINE ? pending[0] > 0 : ++pending[0] == chunkSize;
+                                if (cut) {
+                                    pending[0] = 0;
+                                }
+                                return cut;
+                            });
+                })
+                .doOnNext(chunk -> chunk.removeIf(anime -> anime == CHUNK_DEADLINE))
+                .filter(chunk -> !chunk.isEmpty());
+    }
+
+    private Flux<Anime> insertChunk(List<Anime> chunk) {
+        return animeRepository.insertAll(chunk)
+                .as(transactionalOperator::transactional);
+    }
+
+    private AnimeChunkAck toChunkAck(long chunk, List<Anime> saved) {
+        return AnimeChunkAck.builder()
+                .chunk(chunk)
+                .count(saved.size())
+                .firstId(saved.isEmpty() ? null : saved.get(0).getId())
+                .lastId(saved.isEmpty() ? null : saved.get(saved.size() - 1).getId())
+                .build();
     }
 
     private void throwResponseStatusExceptionWhenEmptyName(Anime anime){
         if (StringUtil.isNullOrEmpty(anime.getName())){
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid name");
+            throw DomainError.INVALID_NAME.exception();
         }
     }
+
+    // Timer anime.service por metodo, o Reactor ja acrescenta a tag status (completed, error, cancelled)
+    private static <T> Mono<T> timed(Mono<T> mono, String method) {
+        return mono.name(METRIC).tag("method", method).metrics();
+    }
+
+    private static <T> Flux<T> timed(Flux<T> flux, String method) {
+        return flux.name(METRIC).tag("method", method).metrics();
+    }
 }
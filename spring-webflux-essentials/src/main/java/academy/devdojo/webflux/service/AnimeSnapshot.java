@@ -0,0 +1,555 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copia do catalogo inteiro em um arquivo local mapeado em memoria, para servir findById e findAll logo apos um restart.
+ * O arquivo guarda os animes em ordem de id e termina com o indice id -> offset em inteiros primitivos.
+ * Um arquivo nunca e alterado: as mudancas ficam em uma camada em memoria e, passado o limite de compactacao,
+ * sao juntadas em um arquivo novo que substitui o anterior. Leituras nao usam lock, leem a geracao atual.
+ */
+@Slf4j
+@Component
+public class AnimeSnapshot implements MeterBinder {
+
+    private static final int MAGIC = 0x414E4D53;
+
+    private static final int FORMAT_VERSION = 1;
+
+    // magic, versao do formato, criado em, quantidade de animes e inicio do indice
+    private static final int HEADER_SIZE = 24;
+
+    private static final int INDEX_ENTRY_SIZE = 8;
+
+    private static final int NULL_NAME = -1;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final boolean enabled;
+
+    private final Path path;
+
+    private final Duration maxAge;
+
+    private final int compactionThreshold;
+
+    private final Executor compactionExecutor;
+
+    private volatile Generation generation = new Generation(Base.EMPTY, new ConcurrentHashMap<>());
+
+    private volatile boolean ready;
+
+    // Conta as vezes que a copia ficou defasada, protegido pelo lock da instancia
+    private long staleMarks;
+
+    // Avanca a cada escrita ou troca de arquivo, semeado com o relogio para nao repetir valores de uma execucao anterior
+    private final AtomicLong modifications = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    // Uma compactacao por vez, protegido pelo lock da instancia
+    private boolean compacting;
+
+    @Autowired
+    public AnimeSnapshot(AnimeProperties animeProperties) {
+        this(animeProperties, runnable -> Schedulers.boundedElastic().schedule(runnable));
+    }
+
+    AnimeSnapshot(AnimeProperties animeProperties, Executor compactionExecutor) {
+        AnimeProperties.Snapshot properties = animeProperties.getSnapshot();
+        this.enabled = properties.isEnabled();
+        this.path = Paths.get(properties.getPath()).toAbsolutePath();
+        this.maxAge = properties.getMaxAge();
+        this.compactionThreshold = properties.getCompactionThreshold();
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    /**
+     * false ate abrir um arquivo recente ou terminar a primeira recarga, antes disso as leituras vao ao banco
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Manda as leituras de volta ao banco ate a proxima recarga terminar, para quando as notificacoes param de chegar.
+     * Uma recarga que ja estava em andamento ainda grava o arquivo, mas nao libera as leituras
+     */
+    public synchronized void markStale() {
+        ready = false;
+        staleMarks++;
+    }
+
+    /**
+     * Mapeia o arquivo deixado pela execucao anterior, que so serve leituras se tiver menos que maxAge.
+     * Ate a primeira recarga terminar as leituras aceitam essa defasagem: o que mudou no banco enquanto a aplicacao
+     * estava parada nao gerou notificacao. O fingerprint leva a data do arquivo, nenhum ETag anterior confere com ele
+     */
+    public boolean open() {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try {
+            Base opened = Base.map(path);
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - opened.createdAt);
+            if (age.compareTo(maxAge) > 0) {
+                log.info("Anime snapshot {} is {} old, reads stay on the database until it is reloaded", path, age);
+                return false;
+            }
+            synchronized (this) {
+                if (!ready) {
+                    generation = new Generation(opened, generation.overlay);
+                    modifications.incrementAndGet();
+                    ready = true;
+                }
+            }
+            log.info("Anime snapshot {} opened with {} animes written {} ago", path, opened.size(), age);
+            return true;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable anime snapshot {}", path, e);
+            return false;
+        }
+    }
+
+    @Nullable
+    public Anime get(int id) {
+        Generation current = generation;
+        Optional<Anime> written = current.overlay.get(id);
+        if (written != null) {
+            return written.orElse(null);
+        }
+        int index = current.base.indexOf(id);
+        return index < 0 ? null : current.base.read(index);
+    }
+
+    /**
+     * Todos os animes em ordem de id, lidos da geracao atual no momento da assinatura
+     */
+    public Flux<Anime> all() {
+        return Flux.defer(() -> {
+            Generation current = generation;
+            // Copia ordenada da camada em memoria, pequena porque vira arquivo ao passar do limite de compactacao
+            SortedMap<Integer, Optional<Anime>> written = new TreeMap<>(current.overlay);
+            Iterable<Anime> animes = () -> new Merged(current.base, written);
+            return Flux.fromIterable(animes);
+        });
+    }
+
+    /**
+     * Identifica o que all() devolve agora: a data do arquivo e as escritas aplicadas sobre ele.
+     * Lido antes de all(), o corpo e no minimo tao novo quanto o fingerprint, nunca um 304 para dados mais velhos
+     */
+    public synchronized String fingerprint() {
+        return "snapshot-" + generation.base.createdAt + "-" + modifications.get();
+    }
+
+    /**
+     * true quando a copia ja tem o anime nessa versao ou numa mais nova, ou quando o anime ja foi removido
+     */
+    public boolean isUpToDate(int id, int version) {
+        Generation current = generation;
+        Optional<Anime> written = current.overlay.get(id);
+        if (written != null) {
+            return written.isEmpty() || version(written.get()) >= version;
+        }
+        int index = current.base.indexOf(id);
+        return index >= 0 && current.base.version(index) >= version;
+    }
+
+    public void put(Anime anime) {
+        if (enabled && anime.getId() != null) {
+            write(anime.getId(), Optional.of(anime));
+        }
+    }
+
+    public void remove(int id) {
+        if (enabled) {
+            write(id, Optional.empty());
+        }
+    }
+
+    // Notificacoes e escritas locais chegam fora de ordem: remocao sempre vence (ids serial nao voltam)
+    // e uma versao mais antiga nunca sobrescreve a atual
+    private synchronized void write(int id, Optional<Anime> value) {
+        if (value.isPresent() && isUpToDate(id, version(value.get()) + 1)) {
+            return;
+        }
+        generation.overlay.put(id, value);
+        modifications.incrementAndGet();
+        compactIfNeeded();
+    }
+
+    /**
+     * Grava um arquivo novo com os animes recebidos, que precisam vir em ordem de id, e passa a servir leituras dele.
+     * Escritas recebidas durante a gravacao continuam valendo quando sao mais novas que o que foi lido do banco
+     */
+    public Mono<Integer> replaceAll(Flux<Anime> animes) {
+        return Mono.defer(() -> {
+            long startedAfter = staleMarks();
+            return Mono.fromCallable(() -> new Writer(temporaryFile()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(writer -> animes
+                            // Escrita em disco fora da thread de IO do driver
+                            .publishOn(Schedulers.boundedElastic())
+                            .doOnNext(writer::append)
+                            .then(Mono.fromCallable(() -> install(writer.finish(), null, startedAfter)))
+                            .doFinally(signal -> writer.discard()));
+        });
+    }
+
+    private synchronized long staleMarks() {
+        return staleMarks;
+    }
+
+    // compactedFrom != null: compactacao, descartada se uma recarga trocou a base enquanto o arquivo era gravado.
+    // So uma recarga iniciada depois do ultimo markStale libera as leituras
+    private int install(Path file, @Nullable Base compactedFrom, long startedAfter) throws IOException {
+        // Mapeado antes do rename, o mapeamento continua valido depois dele
+        Base installed = Base.map(file);
+        synchronized (this) {
+            Generation current = generation;
+            if (compactedFrom != null && current.base != compactedFrom) {
+                return current.base.size();
+            }
+            Files.move(file, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            ConcurrentHashMap<Integer, Optional<Anime>> overlay = new ConcurrentHashMap<>();
+            current.overlay.forEach((id, value) -> {
+                if (installed.isOutdatedBy(id, value)) {
+                    overlay.put(id, value);
+                }
+            });
+            generation = new Generation(installed, overlay);
+            modifications.incrementAndGet();
+            if (compactedFrom == null && startedAfter == staleMarks) {
+                ready = true;
+            }
+            compactIfNeeded();
+            return installed.size();
+        }
+    }
+
+    // A compactacao regrava o arquivo inteiro, roda fora do lock para nao segurar as escritas
+    private void compactIfNeeded() {
+        Generation current = generation;
+        if (!ready || compacting || current.overlay.size() < compactionThreshold) {
+            return;
+        }
+        compacting = true;
+        SortedMap<Integer, Optional<Anime>> written = new TreeMap<>(current.overlay);
+        compactionExecutor.execute(() -> compact(current.base, written));
+    }
+
+    private void compact(Base base, SortedMap<Integer, Optional<Anime>> written) {
+        Writer writer = null;
+        boolean compacted = false;
+        try {
+            writer = new Writer(temporaryFile());
+            new Merged(base, written).forEachRemaining(writer::append);
+            install(writer.finish(), base, -1);
+            compacted = true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Anime snapshot compaction failed, changes stay in memory", e);
+        } finally {
+            if (writer != null) {
+                writer.discard();
+            }
+            synchronized (this) {
+                compacting = false;
+                if (compacted) {
+                    compactIfNeeded();
+                }
+            }
+        }
+    }
+
+    private Path temporaryFile() throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.createTempFile(path.getParent(), path.getFileName() + ".", ".tmp");
+    }
+
+    private static int version(Anime anime) {
+        return anime.getVersion() == null ? 0 : anime.getVersion();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("anime.snapshot.animes", this, snapshot -> snapshot.generation.base.size())
+                .description("Animes in the snapshot file")
+                .register(registry);
+        Gauge.builder("anime.snapshot.pending", this, snapshot -> snapshot.generation.overlay.size())
+                .description("Changes kept in memory until the next compaction")
+                .register(registry);
+    }
+
+    private static final class Generation {
+
+        private final Base base;
+
+        // Escritas posteriores ao arquivo, Optional.empty() quando o anime foi removido
+        private final ConcurrentHashMap<Integer, Optional<Anime>> overlay;
+
+        private Generation(Base base, ConcurrentHashMap<Integer, Optional<Anime>> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+        }
+    }
+
+    /**
+     * Arquivo mapeado e o indice ordenado de ids com o offset de cada anime
+     */
+    private static final class Base {
+
+        private static final Base EMPTY = new Base(null, new int[0], new int[0], 0);
+
+        private final ByteBuffer data;
+
+        private final int[] ids;
+
+        private final int[] offsets;
+
+        private final long createdAt;
+
+        private Base(ByteBuffer data, int[] ids, int[] offsets, long createdAt) {
+            this.data = data;
+            this.ids = ids;
+            this.offsets = offsets;
+            this.createdAt = createdAt;
+        }
+
+        private static Base map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                    throw new IOException("Unexpected anime snapshot size " + size);
+                }
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int count = data.getInt(16);
+                int indexStart = data.getInt(20);
+                if (data.getInt(0) != MAGIC || data.getInt(4) != FORMAT_VERSION || count < 0
+                        || indexStart < HEADER_SIZE || indexStart + (long) count * INDEX_ENTRY_SIZE != size) {
+                    throw new IOException("Invalid anime snapshot header");
+                }
+                int[] ids = new int[count];
+                int[] offsets = new int[count];
+                for (int i = 0; i < count; i++) {
+                    int position = indexStart + i * INDEX_ENTRY_SIZE;
+                    ids[i] = data.getInt(position);
+                    offsets[i] = data.getInt(position + 4);
+                    if ((i > 0 && ids[i] <= ids[i - 1]) || offsets[i] < HEADER_SIZE || offsets[i] >= indexStart) {
+                        throw new IOException("Invalid anime snapshot index at entry " + i);
+                    }
+                }
+                return new Base(data, ids, offsets, data.getLong(8));
+            }
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+        private int indexOf(int id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        private int version(int index) {
+            return data.getInt(offsets[index] + 4);
+        }
+
+        private Anime read(int index) {
+            int offset = offsets[index];
+            int length = data.getInt(offset + 8);
+            String name = null;
+            if (length != NULL_NAME) {
+                byte[] bytes = new byte[length];
+                // Leitura por uma copia da posicao, o buffer mapeado e compartilhado entre as threads
+                data.duplicate().position(offset + 12).get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new Anime(ids[index], name, version(index));
+        }
+
+        // true quando a escrita em memoria traz algo que este arquivo ainda nao tem
+        private boolean isOutdatedBy(int id, Optional<Anime> written) {
+            int index = indexOf(id);
+            if (written.isEmpty()) {
+                return index >= 0;
+            }
+            return index < 0 || version(index) < AnimeSnapshot.version(written.get());
+        }
+    }
+
+    /**
+     * Percorre o arquivo e as escritas em memoria juntos em ordem de id, a escrita substitui o anime do arquivo
+     */
+    private static final class Merged implements Iterator<Anime> {
+
+        private final Base base;
+
+        private final Iterator<Map.Entry<Integer, Optional<Anime>>> written;
+
+        private Map.Entry<Integer, Optional<Anime>> nextWritten;
+
+        private int index;
+
+        private Anime next;
+
+        private Merged(Base base, SortedMap<Integer, Optional<Anime>> written) {
+            this.base = base;
+            this.written = written.entrySet().iterator();
+            this.nextWritten = this.written.hasNext() ? this.written.next() : null;
+            this.next = find();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Anime next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Anime current = next;
+            next = find();
+            return current;
+        }
+
+        private Anime find() {
+            while (index < base.size() || nextWritten != null) {
+                if (nextWritten == null || (index < base.size() && base.ids[index] < nextWritten.getKey())) {
+                    return base.read(index++);
+                }
+                Map.Entry<Integer, Optional<Anime>> entry = nextWritten;
+                if (index < base.size() && base.ids[index] == entry.getKey()) {
+                    index++;
+                }
+                nextWritten = written.hasNext() ? written.next() : null;
+                if (entry.getValue().isPresent()) {
+                    return entry.getValue().get();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Grava um arquivo temporario, que so substitui o atual depois de completo e sincronizado com o disco
+     */
+    private static final class Writer {
+
+        private final Path file;
+
+        private final DataOutputStream out;
+
+        private int[] ids = new int[1024];
+
+        private int[] offsets = new int[1024];
+
+        private int count;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), WRITE_BUFFER_SIZE));
+            out.write(new byte[HEADER_SIZE]);
+        }
+
+        private void append(Anime anime) {
+            int id = anime.getId();
+            if (count > 0 && id <= ids[count - 1]) {
+                throw new IllegalStateException("Animes must be written in id order, got " + id + " after " + ids[count - 1]);
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            try {
+                ids[count] = id;
+                offsets[count] = out.size();
+                out.writeInt(id);
+                out.writeInt(version(anime));
+                if (anime.getName() == null) {
+                    out.writeInt(NULL_NAME);
+                } else {
+                    byte[] name = anime.getName().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                }
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Path finish() throws IOException {
+            // size() para em Integer.MAX_VALUE, um unico mapeamento nao passa de 2GB
+            int indexStart = out.size();
+            if (indexStart + (long) count * INDEX_ENTRY_SIZE >= Integer.MAX_VALUE) {
+                throw new IOException("Anime snapshot does not fit in a single mapping");
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(ids[i]);
+                out.writeInt(offsets[i]);
+            }
+            out.close();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(System.currentTimeMillis())
+                    .putInt(count)
+                    .putInt(indexStart)
+                    .flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                // No disco antes do rename, um crash nao deixa um arquivo pela metade no lugar do anterior
+                channel.force(true);
+            }
+            return file;
+        }
+
+        private void discard() {
+            try {
+                out.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.debug("Could not delete temporary anime snapshot {}", file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.config.R2dbcConfig;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mantem o AnimeSnapshot em dia: abre o arquivo da execucao anterior, recarrega o catalogo e aplica as mudancas
+ * notificadas pelo trigger anime_notify_change, vindas de qualquer instancia.
+ * O LISTEN usa uma conexao propria fora do pool, que fica aberta enquanto a aplicacao estiver de pe.
+ */
+@Component
+@Slf4j
+public class AnimeSnapshotLoader implements DisposableBean {
+
+    public static final String CHANNEL = "anime_changes";
+
+    public static final String DELTAS_METRIC = "anime.snapshot.deltas";
+
+    private static final Duration MAX_RECONNECT_BACKOFF = Duration.ofSeconds(30);
+
+    private final AnimeRepository animeRepository;
+
+    private final AnimeProperties animeProperties;
+
+    private final AnimeSnapshot animeSnapshot;
+
+    private final R2dbcProperties r2dbcProperties;
+
+    private final Counter deltas;
+
+    private Disposable listening;
+
+    public AnimeSnapshotLoader(AnimeRepository animeRepository, AnimeProperties animeProperties, AnimeSnapshot animeSnapshot,
+                               R2dbcProperties r2dbcProperties, MeterRegistry meterRegistry) {
+        this.animeRepository = animeRepository;
+        this.animeProperties = animeProperties;
+        this.animeSnapshot = animeSnapshot;
+        this.r2dbcProperties = r2dbcProperties;
+        this.deltas = Counter.builder(DELTAS_METRIC)
+                .description("Anime change notifications received")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!animeProperties.getSnapshot().isEnabled()) {
+            return;
+        }
+        animeSnapshot.open();
+        listening = listen().subscribe(
+                count -> log.info("Anime snapshot reloaded with {} animes", count),
+                error -> {
+                    animeSnapshot.markStale();
+                    log.error("Stopped listening to anime changes, reads go to the database", error);
+                });
+    }
+
+    /**
+     * Cada conexao faz LISTEN antes de recarregar, nada que mude durante a recarga se perde.
+     * Se a conexao cai reconecta e recarrega de novo, o Postgres nao guarda as notificacoes do intervalo.
+     * Da queda ate essa recarga terminar as leituras voltam ao banco
+     */
+    public Flux<Integer> listen() {
+        AnimeProperties.Snapshot properties = animeProperties.getSnapshot();
+        return Flux.defer(() -> Flux.usingWhen(
+                        Mono.from(ConnectionFactories.get(R2dbcConfig.connectionOptions(r2dbcProperties)).create())
+                                .cast(PostgresqlConnection.class),
+                        this::listen,
+                        PostgresqlConnection::close))
+                // Uma recarga completa zera as tentativas, a espera volta ao minimo na proxima queda
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getReconnectBackoff())
+                        .maxBackoff(MAX_RECONNECT_BACKOFF)
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> {
+                            animeSnapshot.markStale();
+                            log.warn("Anime change notifications interrupted, reads go to the database until reconnected",
+                                    signal.failure());
+                        }));
+    }
+
+    private Flux<Integer> listen(PostgresqlConnection connection) {
+        return connection.createStatement("LISTEN " + CHANNEL)
+                .execute()
+                .flatMap(Result::getRowsUpdated)
+                .thenMany(Flux.merge(applyChanges(connection), reload()));
+    }
+
+    private Flux<Integer> applyChanges(PostgresqlConnection connection) {
+        AnimeProperties.Snapshot properties = animeProperties.getSnapshot();
+        return connection.getNotifications()
+                .filter(notification -> notification.getParameter() != null)
+                .map(Notification::getParameter)
+                .bufferTimeout(properties.getDeltaBatchSize(), properties.getDeltaWindow())
+                .concatMap(this::apply)
+                .thenMany(Flux.error(new IllegalStateException("Anime change notification connection closed")));
+    }
+
+    private Mono<Integer> reload() {
+        int fetchSize = animeProperties.getStream().getFetchSize();
+        return animeSnapshot.replaceAll(Flux.defer(() -> animeRepository.streamAll(fetchSize)));
+    }
+
+    /**
+     * Aplica um lote de notificacoes "D:id" (remocao) ou "I:id:version"/"U:id:version" (insercao ou alteracao).
+     * Remocoes nao vao ao banco, os demais ids sao relidos juntos num unico SELECT
+     */
+    Mono<Void> apply(List<String> payloads) {
+        deltas.increment(payloads.size());
+        Set<Integer> changed = new HashSet<>();
+        for (String payload : payloads) {
+            String[] parts = payload.split(":");
+            try {
+                if (parts.length == 2 && parts[0].equals("D")) {
+                    animeSnapshot.remove(Integer.parseInt(parts[1]));
+                } else if (parts.length == 3) {
+                    int id = Integer.parseInt(parts[1]);
+                    // Escritas desta instancia ja entraram na copia, so rele o que veio de outras instancias
+                    if (!animeSnapshot.isUpToDate(id, Integer.parseInt(parts[2]))) {
+                        changed.add(id);
+                    }
+                } else {
+                    log.warn("Ignoring malformed anime change notification '{}'", payload);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed anime change notification '{}'", payload);
+            }
+        }
+        if (changed.isEmpty()) {
+            return Mono.empty();
+        }
+        return animeRepository.findByIds(changed.toArray(Integer[]::new))
+                .doOnNext(animeSnapshot::put)
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        if (listening != null) {
+            listening.dispose();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package academy.devdojo.webflux.service;
 
 import academy.devdojo.webflux.repository.DevDojoUserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -9,7 +10,7 @@ import reactor.core.publisher.Mono;
 
 @Service
 @RequiredArgsConstructor
-public class DevDojoUserService implements ReactiveUserDetailsService {
+public class DevDojoUserService implements ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
 
     private final DevDojoUserRepository devDojoUserRepository;
 
@@ -18,4 +19,12 @@ public class DevDojoUserService implements ReactiveUserDetailsService {
         return devDojoUserRepository.findByUsername(username)
                 .cast(UserDetails.class);
     }
+
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        return devDojoUserRepository.findByUsername(user.getUsername())
+                .doOnNext(devDojoUser -> devDojoUser.setPassword(newPassword))
+                .flatMap(devDojoUserRepository::save)
+                .cast(UserDetails.class);
+    }
 }
@@ -0,0 +1,119 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.List;
+
+class AnimeBinaryCodecsTest {
+
+    private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+
+    private static final ResolvableType ANIME_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, Anime.class);
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final AnimeProtobufEncoder protobufEncoder = new AnimeProtobufEncoder();
+
+    private final AnimeProtobufDecoder protobufDecoder = new AnimeProtobufDecoder();
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    private final List<Anime> animes = List.of(
+            new Anime(1, "Tensei Shittara Slime Datta Ken", 1),
+            new Anime(0, "Kimetsu no Yaiba 鬼滅の刃", 0),
+            new Anime(null, null, null));
+
+    @Test
+    @DisplayName("protobuf encodes a single anime as a plain message and decodes it back keeping null fields")
+    public void protobuf_RoundTripAnime_WhenMonoIsEncoded() {
+        for (Anime anime : animes) {
+            Flux<DataBuffer> body = protobufEncoder.encode(Mono.just(anime), bufferFactory, ANIME_TYPE,
+                    AnimeProtobufEncoder.APPLICATION_PROTOBUF, Collections.emptyMap());
+
+            StepVerifier.create(protobufDecoder.decodeToMono(body, ANIME_TYPE, AnimeProtobufEncoder.APPLICATION_PROTOBUF, Collections.emptyMap()))
+                    .expectNext(anime)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    @DisplayName("protobuf encodes a flux as length-delimited messages that decode back as a flux or a list")
+    public void protobuf_RoundTripAnimes_WhenFluxIsEncoded() {
+        byte[] body = join(protobufEncoder.encode(Flux.fromIterable(animes), bufferFactory, ANIME_TYPE,
+                AnimeProtobufEncoder.APPLICATION_PROTOBUF, Collections.emptyMap()));
+
+        StepVerifier.create(protobufDecoder.decode(Flux.just(bufferFactory.wrap(body)), ANIME_TYPE,
+                AnimeProtobufEncoder.APPLICATION_PROTOBUF, Collections.emptyMap()))
+                .expectNextSequence(animes)
+                .verifyComplete();
+
+        StepVerifier.create(protobufDecoder.decodeToMono(Flux.just(bufferFactory.wrap(body)), ANIME_LIST_TYPE,
+                AnimeProtobufEncoder.APPLICATION_PROTOBUF, Collections.emptyMap()))
+                .expectNext(animes)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("cbor encodes a flux of anime as a single CBOR array")
+    public void cbor_EncodeArray_WhenFluxIsEncoded() {
+        AnimeCborEncoder cborEncoder = new AnimeCborEncoder(cborMapper);
+        Flux<DataBuffer> body = cborEncoder.encode(Flux.fromIterable(animes), bufferFactory, ANIME_TYPE,
+                MediaType.APPLICATION_CBOR, Collections.emptyMap());
+
+        StepVerifier.create(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR).decodeToMono(body, ANIME_LIST_TYPE, MediaType.APPLICATION_CBOR, Collections.emptyMap()))
+                .expectNext(animes)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("cbor writes the array as the animes arrive, without waiting for the flux to complete")
+    public void cbor_EmitBuffers_BeforeFluxCompletes() {
+        AnimeCborEncoder cborEncoder = new AnimeCborEncoder(cborMapper);
+        Flux<Anime> endless = Flux.range(0, AnimeCborEncoder.ANIMES_PER_BUFFER)
+                .map(i -> animes.get(i % animes.size()))
+                .concatWith(Flux.never());
+
+        StepVerifier.create(cborEncoder.encode(endless, bufferFactory, ANIME_TYPE, MediaType.APPLICATION_CBOR, Collections.emptyMap()))
+                .consumeNextWith(DataBufferUtils::release)
+                .consumeNextWith(DataBufferUtils::release)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("binary codecs only take Anime so other types keep JSON as the default content type")
+    public void canEncode_AcceptOnlyAnime_WhenTypeIsNotAnime() {
+        ResolvableType other = ResolvableType.forClass(Object.class);
+
+        Assertions.assertTrue(protobufEncoder.canEncode(ANIME_TYPE, AnimeProtobufEncoder.APPLICATION_PROTOBUF));
+        Assertions.assertTrue(new AnimeCborEncoder(cborMapper).canEncode(ANIME_TYPE, MediaType.APPLICATION_CBOR));
+        Assertions.assertFalse(protobufEncoder.canEncode(other, AnimeProtobufEncoder.APPLICATION_PROTOBUF));
+        Assertions.assertFalse(new AnimeCborEncoder(cborMapper).canEncode(other, MediaType.APPLICATION_CBOR));
+        Assertions.assertFalse(protobufEncoder.canEncode(ANIME_TYPE, MediaType.APPLICATION_JSON));
+        Assertions.assertFalse(new AnimeCborEncoder(cborMapper).canEncode(ANIME_TYPE, MediaType.APPLICATION_JSON));
+    }
+
+    private static byte[] join(Flux<DataBuffer> buffers) {
+        DataBuffer buffer = DataBufferUtils.join(buffers).block();
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+}
@@ -0,0 +1,125 @@
+package academy.devdojo.webflux.codec;
+
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class AnimeJsonEncoderTest {
+
+    private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+
+    // Mesmo builder que o Boot usa para o ObjectMapper, sem spring.jackson.* no application.yml
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final AnimeJsonEncoder animeJsonEncoder = new AnimeJsonEncoder(objectMapper);
+
+    private final Jackson2JsonEncoder jacksonEncoder = new Jackson2JsonEncoder(objectMapper);
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final List<Anime> animes = List.of(
+            new Anime(1, "Tensei Shittara Slime Datta Ken", 1),
+            new Anime(Integer.MAX_VALUE, "Shingeki no Kyojin \"Final\" \\ Season", 0),
+            new Anime(Integer.MIN_VALUE, "Linha\nquebrada\t\u0001", -12),
+            new Anime(0, "Kimetsu no Yaiba 鬼滅の刃 😀", 100),
+            new Anime(null, null, null));
+
+    @Test
+    @DisplayName("encodeValue writes the same JSON as the Jackson encoder for each anime")
+    public void encodeValue_MatchJackson_WhenAnimeIsEncoded() {
+        for (Anime anime : animes) {
+            Assertions.assertEquals(jackson(Mono.just(anime), MediaType.APPLICATION_JSON),
+                    read(animeJsonEncoder.encodeValue(anime, bufferFactory, ANIME_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())));
+        }
+    }
+
+    @Test
+    @DisplayName("encode writes the same JSON array as the Jackson encoder when the flux spans several buffers")
+    public void encode_MatchJackson_WhenFluxIsEncodedAsJsonArray() {
+        List<Anime> many = IntStream.range(0, AnimeJsonEncoder.ANIMES_PER_BUFFER * 2 + 3)
+                .mapToObj(i -> animes.get(i % animes.size()))
+                .collect(Collectors.toList());
+
+        Assertions.assertEquals(jackson(Flux.fromIterable(many), MediaType.APPLICATION_JSON),
+                encode(Flux.fromIterable(many), MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @DisplayName("encode writes an empty JSON array when the flux is empty")
+    public void encode_ReturnEmptyArray_WhenFluxIsEmpty() {
+        Assertions.assertEquals("[]", encode(Flux.empty(), MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @DisplayName("encode writes one JSON line per anime, like the Jackson encoder, for NDJSON")
+    public void encode_MatchJackson_WhenFluxIsEncodedAsNdjson() {
+        Assertions.assertEquals(jackson(Flux.fromIterable(animes), MediaType.APPLICATION_NDJSON),
+                encode(Flux.fromIterable(animes), MediaType.APPLICATION_NDJSON));
+    }
+
+    @Test
+    @DisplayName("canEncode accepts only Anime as JSON or NDJSON in UTF-8")
+    public void canEncode_AcceptOnlyAnimeJson_WhenTypeAndMimeTypeVary() {
+        Assertions.assertTrue(animeJsonEncoder.canEncode(ANIME_TYPE, MediaType.APPLICATION_JSON));
+        Assertions.assertTrue(animeJsonEncoder.canEncode(ANIME_TYPE, MediaType.APPLICATION_NDJSON));
+        Assertions.assertTrue(animeJsonEncoder.canEncode(ANIME_TYPE, null));
+        Assertions.assertFalse(animeJsonEncoder.canEncode(ANIME_TYPE, MediaType.TEXT_EVENT_STREAM));
+        Assertions.assertFalse(animeJsonEncoder.canEncode(ANIME_TYPE, new MimeType("application", "json", StandardCharsets.UTF_16)));
+        Assertions.assertFalse(animeJsonEncoder.canEncode(ResolvableType.forClass(Object.class), MediaType.APPLICATION_JSON));
+        Assertions.assertFalse(animeJsonEncoder.canEncode(ResolvableType.forClassWithGenerics(List.class, Anime.class), MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @DisplayName("canEncode leaves Anime to Jackson when the configured ObjectMapper writes it differently")
+    public void canEncode_ReturnFalse_WhenObjectMapperIsCustomized() {
+        List<ObjectMapper> customized = List.of(
+                Jackson2ObjectMapperBuilder.json().serializationInclusion(JsonInclude.Include.NON_NULL).build(),
+                Jackson2ObjectMapperBuilder.json().propertyNamingStrategy(PropertyNamingStrategy.UPPER_CAMEL_CASE).build(),
+                Jackson2ObjectMapperBuilder.json().indentOutput(true).build(),
+                Jackson2ObjectMapperBuilder.json()
+                        .factory(JsonFactory.builder().enable(JsonWriteFeature.ESCAPE_NON_ASCII).build())
+                        .build());
+
+        for (ObjectMapper mapper : customized) {
+            Assertions.assertFalse(new AnimeJsonEncoder(mapper).canEncode(ANIME_TYPE, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private String encode(Flux<Anime> input, MimeType mimeType) {
+        return read(DataBufferUtils.join(animeJsonEncoder.encode(input, bufferFactory, ANIME_TYPE, mimeType, Collections.emptyMap())).block());
+    }
+
+    private String jackson(Publisher<Anime> input, MimeType mimeType) {
+        return read(DataBufferUtils.join(jacksonEncoder.encode(input, bufferFactory, ANIME_TYPE, mimeType, Collections.emptyMap())).block());
+    }
+
+    private static String read(DataBuffer buffer) {
+        String json = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return json;
+    }
+}
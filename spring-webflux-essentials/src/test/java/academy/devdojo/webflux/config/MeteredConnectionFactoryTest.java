@@ -0,0 +1,70 @@
+package academy.devdojo.webflux.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class MeteredConnectionFactoryTest {
+
+    @Mock
+    private ConnectionPool connectionPool;
+
+    @Mock
+    private Connection connection;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MeteredConnectionFactory meteredConnectionFactory;
+
+    @BeforeEach
+    public void setUp(){
+        meteredConnectionFactory = new MeteredConnectionFactory(connectionPool, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("create records the acquire time of the connection")
+    public void create_RecordAcquireTime_WhenConnectionIsAcquired(){
+        BDDMockito.when(connectionPool.create())
+                .thenReturn(Mono.just(connection));
+
+        StepVerifier.create(meteredConnectionFactory.create())
+                .expectSubscription()
+                .expectNext(connection)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    @DisplayName("create records the failed acquire tagged with the exception")
+    public void create_RecordFailedAcquire_WhenPoolTimesOut(){
+        BDDMockito.when(connectionPool.create())
+                .thenReturn(Mono.error(new R2dbcTimeoutException("pool exhausted")));
+
+        StepVerifier.create(meteredConnectionFactory.create())
+                .expectSubscription()
+                .expectError(R2dbcTimeoutException.class)
+                .verify();
+
+        Assertions.assertEquals(1, meterRegistry.get("r2dbc.pool.acquire")
+                .tags("outcome", "error", "exception", "R2dbcTimeoutException").timer().count());
+    }
+
+    @Test
+    @DisplayName("unwrap exposes the pool so the actuator can bind its gauges")
+    public void unwrap_ReturnPool_WhenCalled(){
+        Assertions.assertSame(connectionPool, meteredConnectionFactory.unwrap());
+    }
+}
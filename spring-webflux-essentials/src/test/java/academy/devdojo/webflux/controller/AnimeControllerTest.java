@@ -1,6 +1,11 @@
 package academy.devdojo.webflux.controller;
 
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import academy.devdojo.webflux.domain.AnimeChunkAck;
+import academy.devdojo.webflux.domain.AnimePage;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import academy.devdojo.webflux.service.AnimeChangeFeed;
 import academy.devdojo.webflux.service.AnimeService;
 import academy.devdojo.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.*;
@@ -9,14 +14,19 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +40,9 @@ class AnimeControllerTest {
     @Mock
     private AnimeService animeServiceMock;
 
+    @Mock
+    private AnimeChangeFeed animeChangeFeedMock;
+
     private final Anime anime = AnimeCreator.createAnimeToBeSaved();
 
     @BeforeAll
@@ -58,6 +71,24 @@ class AnimeControllerTest {
         BDDMockito.when(animeServiceMock.findAll())
                 .thenReturn(Flux.just(anime));
 
+        BDDMockito.when(animeServiceMock.findAllWithFingerprint())
+                .thenReturn(Mono.just(Tuples.of("fingerprint", Flux.just(anime))));
+
+        BDDMockito.when(animeServiceMock.streamAll())
+                .thenReturn(Flux.just(anime));
+
+        BDDMockito.when(animeServiceMock.findPage(ArgumentMatchers.any(), ArgumentMatchers.anyInt(), ArgumentMatchers.anyBoolean()))
+                .thenReturn(Mono.just(AnimePage.builder().content(List.of(anime)).total(1).build()));
+
+        BDDMockito.when(animeServiceMock.search(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.anyInt(), ArgumentMatchers.anyBoolean()))
+                .thenReturn(Mono.just(AnimePage.builder().content(List.of(anime)).total(1).build()));
+
+        BDDMockito.when(animeServiceMock.suggest(ArgumentMatchers.anyString(), ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(new AnimeSuggestion(1, "Dragon Ball")));
+
+        BDDMockito.when(animeServiceMock.findByIds(ArgumentMatchers.anyList()))
+                .thenReturn(Flux.just(anime));
+
         BDDMockito.when(animeServiceMock.findById(ArgumentMatchers.anyInt()))
                 .thenReturn(Mono.just(anime));
 
@@ -67,17 +98,74 @@ class AnimeControllerTest {
         BDDMockito.when(animeServiceMock.saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .thenReturn(Flux.just(anime, anime));
 
-        BDDMockito.when(animeServiceMock.delete(ArgumentMatchers.anyInt()))
+        BDDMockito.when(animeServiceMock.ingest(ArgumentMatchers.any()))
+                .thenReturn(Flux.just(AnimeChunkAck.builder().chunk(0).count(1).build()));
+
+        BDDMockito.when(animeServiceMock.delete(ArgumentMatchers.anyInt(), ArgumentMatchers.any()))
                 .thenReturn(Mono.empty());
 
-        BDDMockito.when(animeServiceMock.update(AnimeCreator.createValidAnime()))
+        BDDMockito.when(animeServiceMock.update(ArgumentMatchers.eq(AnimeCreator.createValidAnime()), ArgumentMatchers.any()))
                 .thenReturn(Mono.empty());
     }
 
     @Test
     @DisplayName("listAll returns a flux of anime")
     public void listAll_ReturnFluxOfAnime_WhenSuccessful(){
+        StepVerifier.create(animeController.listAll().flatMapMany(HttpEntity::getBody))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("listAll tags the response with the fingerprint of the animes")
+    public void listAll_ReturnETag_WhenSuccessful(){
         StepVerifier.create(animeController.listAll())
+                .expectSubscription()
+                .assertNext(response -> Assertions.assertEquals("\"fingerprint\"", response.getHeaders().getETag()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("streamAll returns a flux of anime")
+    public void streamAll_ReturnFluxOfAnime_WhenSuccessful(){
+        StepVerifier.create(animeController.streamAll())
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("listPage returns a page of anime")
+    public void listPage_ReturnPageOfAnime_WhenSuccessful(){
+        StepVerifier.create(animeController.listPage(null, 20, false))
+                .expectSubscription()
+                .assertNext(page -> Assertions.assertEquals(List.of(anime), page.getContent()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("search returns a page of the animes found")
+    public void search_ReturnPageOfAnime_WhenSuccessful(){
+        StepVerifier.create(animeController.search("dragon", null, 20, false))
+                .expectSubscription()
+                .assertNext(page -> Assertions.assertEquals(List.of(anime), page.getContent()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("suggest returns a flux of suggestions")
+    public void suggest_ReturnFluxOfSuggestion_WhenSuccessful(){
+        StepVerifier.create(animeController.suggest("drag", 10))
+                .expectSubscription()
+                .expectNext(new AnimeSuggestion(1, "Dragon Ball"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("listByIds returns a flux of the animes found")
+    public void listByIds_ReturnFluxOfAnime_WhenSuccessful(){
+        StepVerifier.create(animeController.listByIds(List.of(1, 2)))
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
@@ -88,7 +176,10 @@ class AnimeControllerTest {
     public void listById_ReturnMonoAnime_WhenSuccessful(){
         StepVerifier.create(animeController.listById(1))
                 .expectSubscription()
-                .expectNext(anime)
+                .assertNext(response -> {
+                    Assertions.assertEquals(anime, response.getBody());
+                    Assertions.assertNotNull(response.getHeaders().getETag());
+                })
                 .verifyComplete();
     }
 
@@ -116,22 +207,76 @@ class AnimeControllerTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("ingest acknowledges the chunks written")
+    public void ingest_AcknowledgeChunks_WhenSuccessful(){
+
+        StepVerifier.create(animeController.ingest(Flux.just(AnimeCreator.createAnimeToBeSaved())))
+                .expectSubscription()
+                .assertNext(ack -> Assertions.assertEquals(1, ack.getCount()))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("delete removes the anime when successful")
     public void delete_RemovesAnime_WhenSuccessful(){
 
-        StepVerifier.create(animeController.delete(1))
+        StepVerifier.create(animeController.delete(1, null))
+                .expectSubscription()
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("delete passes the version of the If-Match ETag to the service")
+    public void delete_UseIfMatchVersion_WhenHeaderIsSent(){
+
+        StepVerifier.create(animeController.delete(1, "\"1-3\""))
                 .expectSubscription()
                 .verifyComplete();
+
+        BDDMockito.verify(animeServiceMock).delete(1, 3);
     }
 
     @Test
     @DisplayName("update save updated anime and returns empty mono when successful")
     public void update_SaveUpdatedAnime_WhenSuccessful(){
 
-        StepVerifier.create(animeController.update(1, AnimeCreator.createValidAnime()))
+        StepVerifier.create(animeController.update(1, AnimeCreator.createValidAnime(), null))
                 .expectSubscription()
                 .verifyComplete();
+
+        BDDMockito.verify(animeServiceMock).update(AnimeCreator.createValidAnime(), null);
+    }
+
+    @Test
+    @DisplayName("update returns Mono error with precondition failed when If-Match is not an ETag of the anime")
+    public void update_ReturnPreconditionFailed_WhenIfMatchIsFromAnotherAnime(){
+
+        StepVerifier.create(animeController.update(1, AnimeCreator.createValidAnime(), "\"2-1\""))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.PRECONDITION_FAILED)
+                .verify();
+
+        BDDMockito.verifyNoInteractions(animeServiceMock);
+    }
+
+    @Test
+    @DisplayName("changes completes the server-sent events and stops the heartbeats when the change feed completes")
+    public void changes_Complete_WhenChangeFeedCompletes(){
+        AnimeChange reset = AnimeChange.builder().sequence(1L).type(AnimeChange.Type.RESET).build();
+        BDDMockito.when(animeChangeFeedMock.getHeartbeat()).thenReturn(Duration.ofSeconds(15));
+        BDDMockito.when(animeChangeFeedMock.changes(null))
+                .thenAnswer(invocation -> Flux.just(reset).delayElements(Duration.ofSeconds(20)));
+
+        StepVerifier.withVirtualTime(() -> animeController.changes(null))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(15))
+                .expectNextMatches(event -> "heartbeat".equals(event.comment()))
+                .thenAwait(Duration.ofSeconds(5))
+                .expectNextMatches(event -> reset.equals(event.data()) && "1".equals(event.id()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package academy.devdojo.webflux.exception;
+
+import academy.devdojo.webflux.logging.RequestLoggingWebFilter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class PreEncodedErrorResponsesTest {
+
+    private final PreEncodedErrorResponses preEncodedErrorResponses = new PreEncodedErrorResponses(new SimpleMeterRegistry());
+
+    private final CustomAttributes customAttributes = new CustomAttributes();
+
+    @Test
+    @DisplayName("render writes the same fields, values and order as the CustomAttributes serialized by Jackson")
+    public void render_MatchCustomAttributes_WhenDomainError() throws Exception {
+        for (DomainError domainError : DomainError.values()) {
+            StacklessResponseStatusException error = domainError.exception();
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes/99"));
+            exchange.getAttributes().put(RequestLoggingWebFilter.CORRELATION_ID, "request-42");
+            ServerRequest request = ServerRequest.create(exchange, Collections.emptyList());
+
+            customAttributes.storeErrorInformation(error, exchange);
+            Map<String, Object> expected = customAttributes.getErrorAttributes(request, ErrorAttributeOptions.defaults());
+            Map<String, Object> rendered = read(preEncodedErrorResponses.get(error).render(request));
+
+            Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(rendered.keySet()));
+            expected.remove("timestamp");
+            rendered.remove("timestamp");
+            Assertions.assertEquals(expected, rendered);
+        }
+    }
+
+    @Test
+    @DisplayName("get returns null for errors that are not domain errors")
+    public void get_ReturnNull_WhenErrorIsNotDomainError() {
+        Assertions.assertNull(preEncodedErrorResponses.get(new ResponseStatusException(DomainError.ANIME_NOT_FOUND.getStatus(), "Anime not found")));
+    }
+
+    @Test
+    @DisplayName("get finds the pre-encoded body by the domain error, whatever the exception instance")
+    public void get_ReturnSameBody_WhenDifferentInstancesOfSameDomainError() {
+        Assertions.assertNotNull(preEncodedErrorResponses.get(DomainError.ANIME_NOT_FOUND.exception()));
+        Assertions.assertSame(preEncodedErrorResponses.get(DomainError.ANIME_NOT_FOUND.exception()),
+                preEncodedErrorResponses.get(DomainError.ANIME_NOT_FOUND.exception()));
+    }
+
+    @Test
+    @DisplayName("domain errors do not capture a stack trace unless withStackTrace is called")
+    public void domainErrors_HaveNoStackTrace_UnlessRequested() {
+        Assertions.assertEquals(0, DomainError.ANIME_NOT_FOUND.exception().getStackTrace().length);
+        Assertions.assertTrue(DomainError.ANIME_NOT_FOUND.exception().withStackTrace().getStackTrace().length > 0);
+    }
+
+    @Test
+    @DisplayName("each domain error is a new exception, so suppressed exceptions added by checkpoints are not shared")
+    public void exception_ReturnNewInstance_WhenCalledTwice() {
+        StacklessResponseStatusException first = DomainError.ANIME_NOT_FOUND.exception();
+        first.addSuppressed(new IllegalStateException("checkpoint"));
+
+        StacklessResponseStatusException second = DomainError.ANIME_NOT_FOUND.exception();
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(0, second.getSuppressed().length);
+    }
+
+    private Map<String, Object> read(DataBuffer buffer) throws Exception {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return new ObjectMapper().readValue(new String(bytes, StandardCharsets.UTF_8), new TypeReference<LinkedHashMap<String, Object>>() {});
+    }
+}
@@ -1,8 +1,24 @@
 package academy.devdojo.webflux.integration;
 
+import academy.devdojo.webflux.codec.AnimeMessages;
+import academy.devdojo.webflux.codec.AnimeProtobufEncoder;
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import academy.devdojo.webflux.domain.AnimeChunkAck;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import academy.devdojo.webflux.exception.GlobalExceptionHandler;
+import academy.devdojo.webflux.proto.AnimeMessage;
 import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.security.TokenService;
+import academy.devdojo.webflux.service.AnimeCache;
+import academy.devdojo.webflux.service.AnimeChangeFeed;
+import academy.devdojo.webflux.service.AnimeNameIndexLoader;
+import academy.devdojo.webflux.service.AnimeService;
 import academy.devdojo.webflux.util.AnimeCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
@@ -12,7 +28,11 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -22,7 +42,12 @@ import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
@@ -41,12 +66,29 @@ public class AnimeControllerIT {
 
     private final static String ADMIN_USER = "nelson";
 
+    private final static String CORRELATION_HEADER = "X-Correlation-Id";
+
     @MockBean
     private AnimeRepository animeRepositoryMock;
 
     @Autowired
     private WebTestClient client;
 
+    @Autowired
+    private AnimeCache animeCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private AnimeNameIndexLoader animeNameIndexLoader;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AnimeChangeFeed animeChangeFeed;
+
     private final Anime anime = AnimeCreator.createValidAnime();
 
     @BeforeAll
@@ -73,20 +115,40 @@ public class AnimeControllerIT {
     @BeforeEach
     public void setUp() {
 
+        animeCache.invalidateAll();
+
         BDDMockito.when(animeRepositoryMock.findAll())
                 .thenReturn(Flux.just(anime));
 
+        BDDMockito.when(animeRepositoryMock.fingerprint())
+                .thenReturn(Mono.just("fingerprint"));
+
+        BDDMockito.when(animeRepositoryMock.streamAll(ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime, anime));
+
+        BDDMockito.when(animeRepositoryMock.findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime));
+
+        BDDMockito.when(animeRepositoryMock.estimateCount())
+                .thenReturn(Mono.just(1L));
+
         BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
                 .thenReturn(Mono.just(anime));
 
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.just(anime));
+
         BDDMockito.when(animeRepositoryMock.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
 
-        BDDMockito.when(animeRepositoryMock.saveAll(ArgumentMatchers.anyIterable()))
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.anyList()))
                 .thenReturn(Flux.just(anime, anime));
 
-        BDDMockito.when(animeRepositoryMock.delete(ArgumentMatchers.any(Anime.class)))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepositoryMock.deleteAnimeById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(1));
+
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString()))
+                .thenReturn(Mono.just(anime));
 
     }
 
@@ -104,6 +166,22 @@ public class AnimeControllerIT {
             .jsonPath("$.[0].name").isEqualTo(anime.getName());
     }
 
+    @Test
+    @DisplayName("findAll returns not modified without reading the animes when If-None-Match has the current ETag")
+    @WithUserDetails(ADMIN_USER)
+    public void findAll_ReturnNotModified_WhenETagMatches() {
+        client
+            .get()
+            .uri("/animes")
+            .ifNoneMatch("\"fingerprint\"")
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"fingerprint\"")
+            .expectBody().isEmpty();
+
+        BDDMockito.verify(animeRepositoryMock, BDDMockito.never()).findAll();
+    }
+
     @Test
     @DisplayName("findAll returns forbidden when user is successfully authenticated and does not have role ADMIN")
     @WithUserDetails(REGULAR_USER)
@@ -139,6 +217,151 @@ public class AnimeControllerIT {
             .contains(anime);
     }
 
+    @Test
+    @DisplayName("streamAll returns animes as NDJSON when is successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void streamAll_ReturnNdjsonOfAnime_WhenSuccessful() {
+        client
+            .get()
+            .uri("/animes/stream")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(Anime.class)
+            .getResponseBody()
+            .as(StepVerifier::create)
+            .expectNext(anime, anime)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("changes streams the anime saved after the Last-Event-ID as NDJSON when has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void changes_ReturnSavedAnime_WhenLastEventIdIsSent() {
+        long lastEventId = animeChangeFeed.latestSequence();
+
+        client
+            .post()
+            .uri("/animes")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(AnimeCreator.createAnimeToBeSaved())
+            .exchange()
+            .expectStatus().isCreated();
+
+        client
+            .get()
+            .uri("/animes/changes")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .header("Last-Event-ID", String.valueOf(lastEventId))
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(AnimeChange.class)
+            .getResponseBody()
+            .take(1)
+            .as(StepVerifier::create)
+            .assertNext(change -> {
+                Assertions.assertEquals(AnimeChange.Type.CREATED, change.getType());
+                Assertions.assertEquals(anime, change.getAnime());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("streamAll returns forbidden when user is successfully authenticated and does not have role ADMIN")
+    @WithUserDetails(REGULAR_USER)
+    public void streamAll_ReturnForbidden_WhenUserDoesNotHaveRoleAdmin() {
+        client
+            .get()
+            .uri("/animes/stream")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    @Test
+    @DisplayName("listPage returns a page of anime without next cursor when is successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void listPage_ReturnPageOfAnime_WhenSuccessful() {
+        client
+            .get()
+            .uri("/animes/page?size={size}", 10)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content[0].id").isEqualTo(anime.getId())
+            .jsonPath("$.content[0].name").isEqualTo(anime.getName())
+            .jsonPath("$.next").doesNotExist()
+            .jsonPath("$.total").isEqualTo(1)
+            .jsonPath("$.estimatedTotal").isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("listPage returns bad request when cursor is invalid and user is successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void listPage_ReturnBadRequest_WhenCursorIsInvalid() {
+        client
+            .get()
+            .uri("/animes/page?cursor={cursor}", "not-a-cursor")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(400)
+            .jsonPath("$.developerMessage").isEqualTo("A ResponseStatusException Happened");
+    }
+
+    @Test
+    @DisplayName("search returns a ranked page of anime when is successfully authenticated and has role USER")
+    @WithUserDetails(REGULAR_USER)
+    public void search_ReturnPageOfAnime_WhenSuccessful() {
+        BDDMockito.when(animeRepositoryMock.search(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(),
+                        ArgumentMatchers.anyString(), ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime));
+
+        client
+            .get()
+            .uri("/animes/search?q={q}", "dragon")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content[0].name").isEqualTo(anime.getName())
+            .jsonPath("$.next").doesNotExist();
+
+        BDDMockito.verify(animeRepositoryMock).search("dragon", "%dragon%", "dragon%", AnimeService.DEFAULT_PAGE_SIZE + 1, 0);
+    }
+
+    @Test
+    @DisplayName("search returns bad request when the query is blank and user is successfully authenticated and has role USER")
+    @WithUserDetails(REGULAR_USER)
+    public void search_ReturnBadRequest_WhenQueryIsBlank() {
+        client
+            .get()
+            .uri("/animes/search?q={q}", " ")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("suggest returns the animes whose name starts with the prefix when is successfully authenticated and has role USER")
+    @WithUserDetails(REGULAR_USER)
+    public void suggest_ReturnFluxOfSuggestion_WhenSuccessful() {
+        BDDMockito.when(animeRepositoryMock.streamAll(ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime.withId(7).withName("Yu Yu Hakusho"), anime.withId(8).withName("Yu-Gi-Oh!")));
+
+        animeNameIndexLoader.load().block();
+
+        client
+            .get()
+            .uri("/animes/suggest?prefix={prefix}", "yu yu")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(AnimeSuggestion.class)
+            .hasSize(1)
+            .contains(new AnimeSuggestion(7, "Yu Yu Hakusho"));
+    }
+
     @Test
     @DisplayName("findById returns Mono with anime when it exists when is successfully authenticated and has role USER")
     @WithUserDetails(REGULAR_USER)
@@ -151,6 +374,169 @@ public class AnimeControllerIT {
             .expectBody(Anime.class).isEqualTo(anime);
     }
 
+    @Test
+    @DisplayName("findById returns not modified when If-None-Match has the ETag of the current version")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_ReturnNotModified_WhenETagMatches() {
+        String eTag = client
+            .get()
+            .uri("/animes/{id}", 1)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().exists(HttpHeaders.ETAG)
+            .returnResult(Anime.class)
+            .getResponseHeaders()
+            .getETag();
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .ifNoneMatch(eTag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectBody().isEmpty();
+
+        // A segunda leitura sai do cache, o repositorio e consultado uma unica vez
+        BDDMockito.verify(animeRepositoryMock, BDDMockito.times(1)).findByIds(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("findById returns the anime when If-None-Match has the ETag of an old version")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_ReturnMonoAnime_WhenETagDoesNotMatch() {
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .ifNoneMatch("\"1-0\"")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(Anime.class)
+            .isEqualTo(anime);
+    }
+
+    @Test
+    @DisplayName("listByIds returns the animes of the ids when is successfully authenticated and has role USER")
+    @WithUserDetails(REGULAR_USER)
+    public void listByIds_ReturnFluxOfAnime_WhenSuccessful() {
+        client
+            .get()
+            .uri("/animes?ids={ids}", "1,2,3")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Anime.class)
+            .hasSize(1)
+            .contains(anime);
+    }
+
+    @Test
+    @DisplayName("findAll returns length-delimited protobuf messages when Accept is application/x-protobuf")
+    @WithUserDetails(ADMIN_USER)
+    public void findAll_ReturnDelimitedProtobuf_WhenAcceptIsProtobuf() throws IOException {
+        byte[] body = client
+            .get()
+            .uri("/animes")
+            .accept(AnimeProtobufEncoder.APPLICATION_PROTOBUF)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(AnimeProtobufEncoder.APPLICATION_PROTOBUF)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        Assertions.assertEquals(List.of(anime), readDelimited(body));
+    }
+
+    @Test
+    @DisplayName("saveBatch reads and writes length-delimited protobuf messages when both content types are application/x-protobuf")
+    @WithUserDetails(ADMIN_USER)
+    public void saveBatch_CreatesListOfAnimes_WhenBodyIsProtobuf() throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        AnimeMessages.toMessage(AnimeCreator.createAnimeToBeSaved()).writeDelimitedTo(request);
+        AnimeMessages.toMessage(AnimeCreator.createAnimeToBeSaved()).writeDelimitedTo(request);
+
+        byte[] body = client
+            .post()
+            .uri("/animes/batch")
+            .contentType(AnimeProtobufEncoder.APPLICATION_PROTOBUF)
+            .accept(AnimeProtobufEncoder.APPLICATION_PROTOBUF)
+            .bodyValue(request.toByteArray())
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        Assertions.assertEquals(List.of(anime, anime), readDelimited(body));
+    }
+
+    @Test
+    @DisplayName("findById returns the anime encoded as CBOR when Accept is application/cbor")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_ReturnCborAnime_WhenAcceptIsCbor() throws IOException {
+        byte[] body = client
+            .get()
+            .uri("/animes/{id}", 3)
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        Assertions.assertEquals(anime, new ObjectMapper(new CBORFactory()).readValue(body, Anime.class));
+    }
+
+    private static List<Anime> readDelimited(byte[] body) throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(body);
+        List<Anime> animes = new ArrayList<>();
+        AnimeMessage message;
+        while ((message = AnimeMessage.parseDelimitedFrom(input)) != null) {
+            animes.add(AnimeMessages.toAnime(message));
+        }
+        return animes;
+    }
+
+    @Test
+    @DisplayName("findById returns Mono with anime when it exists and the request carries a valid bearer token with role USER")
+    public void findById_ReturnMonoAnime_WhenBearerTokenIsValid() {
+        String token = tokenService.issue(new UsernamePasswordAuthenticationToken(REGULAR_USER, null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(Anime.class).isEqualTo(anime);
+    }
+
+    @Test
+    @DisplayName("findById returns unauthorized when the bearer token is invalid")
+    public void findById_ReturnUnauthorized_WhenBearerTokenIsInvalid() {
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .header(HttpHeaders.AUTHORIZATION, "Bearer invalid")
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    @DisplayName("findAll returns forbidden when the bearer token does not have role ADMIN")
+    public void findAll_ReturnForbidden_WhenBearerTokenDoesNotHaveRoleAdmin() {
+        String token = tokenService.issue(new UsernamePasswordAuthenticationToken(REGULAR_USER, null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+        client
+            .get()
+            .uri("/animes")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
     @Test
     @DisplayName("findById returns Mono with anime when it exists and user is successfully authenticated and has role USER")
     @WithUserDetails(REGULAR_USER)
@@ -159,6 +545,9 @@ public class AnimeControllerIT {
         BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
                 .thenReturn(Mono.empty());
 
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.empty());
+
         client
             .get()
             .uri("/animes/{id}", 1)
@@ -170,6 +559,104 @@ public class AnimeControllerIT {
 
     }
 
+    @Test
+    @DisplayName("findById counts the error by status and times the service method when anime does not exist")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_RecordErrorMetrics_WhenEmptyMonoIsReturned() {
+
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.empty());
+
+        double errorsBefore = notFoundErrors();
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .exchange()
+            .expectStatus().isNotFound();
+
+        Assertions.assertEquals(errorsBefore + 1, notFoundErrors());
+        Assertions.assertNotNull(meterRegistry.find(AnimeService.METRIC + ".flow.duration")
+                .tags("method", "findById", "status", "error")
+                .timer());
+    }
+
+    @Test
+    @DisplayName("findById echoes the correlation id in the response header and in the error body")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_ReturnCorrelationId_WhenHeaderIsSent() {
+
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.empty());
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .header(CORRELATION_HEADER, "request-42")
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectHeader().valueEquals(CORRELATION_HEADER, "request-42")
+            .expectBody()
+            .jsonPath("$.correlationId").isEqualTo("request-42");
+    }
+
+    @Test
+    @DisplayName("findById generates a new correlation id when the header has invalid characters")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_GenerateCorrelationId_WhenHeaderIsInvalid() {
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .header(CORRELATION_HEADER, "bad id <forged>")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().value(CORRELATION_HEADER, correlationId -> Assertions.assertTrue(correlationId.matches("[0-9a-f]+")));
+    }
+
+    @Test
+    @DisplayName("findById returns the stack trace of the not found error only when trace=true is requested")
+    @WithUserDetails(REGULAR_USER)
+    public void findById_ReturnStackTrace_WhenTraceIsRequested() {
+
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.empty());
+
+        client
+            .get()
+            .uri("/animes/{id}", 1)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.trace").doesNotExist();
+
+        client
+            .get()
+            .uri("/animes/{id}?trace=true", 1)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(404)
+            .jsonPath("$.developerMessage").isEqualTo("A ResponseStatusException Happened")
+            .jsonPath("$.trace").value(trace -> Assertions.assertTrue(trace.toString().contains("DomainErrors")));
+    }
+
+    private double notFoundErrors() {
+        Counter counter = meterRegistry.find(GlobalExceptionHandler.ERRORS_METRIC)
+                .tags("status", "404", "exception", "StacklessResponseStatusException")
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+
     @Test
     @DisplayName("delete removes the anime when successful when is successfully authenticated and has role ADMIN")
     @WithUserDetails(ADMIN_USER)
@@ -189,8 +676,8 @@ public class AnimeControllerIT {
     @WithUserDetails(ADMIN_USER)
     public void delete_ReturnMonoErro_WhenEmptyMonoIsReturned() {
 
-        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepositoryMock.deleteAnimeById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(0));
 
         client
             .delete()
@@ -260,9 +747,6 @@ public class AnimeControllerIT {
 
         Anime animeEmptyName = AnimeCreator.createValidAnime().withName("");
 
-        BDDMockito.when(animeRepositoryMock.saveAll(ArgumentMatchers.anyIterable()))
-                .thenReturn(Flux.just(animeEmptyName));
-
         client
                 .post()
                 .uri("/animes/batch")
@@ -275,13 +759,34 @@ public class AnimeControllerIT {
                 .jsonPath("$.developerMessage").isEqualTo("A ResponseStatusException Happened");
     }
 
+    @Test
+    @DisplayName("ingest acknowledges the chunks written from a NDJSON stream when is successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void ingest_AcknowledgeChunks_WhenSuccessful() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        client
+            .post()
+            .uri("/animes/ingest")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .body(Flux.just(animeToBeSaved, animeToBeSaved), Anime.class)
+            .exchange()
+            .expectStatus().isCreated()
+            .returnResult(AnimeChunkAck.class)
+            .getResponseBody()
+            .as(StepVerifier::create)
+            .assertNext(ack -> Assertions.assertEquals(2, ack.getCount()))
+            .verifyComplete();
+    }
+
     @Test
     @DisplayName("update save updated anime and returns empty mono when successful when is successfully authenticated and has role ADMIN")
     @WithUserDetails(ADMIN_USER)
     public void update_SaveUpdatedAnime_WhenSuccessful() {
 
-        BDDMockito.when(animeRepositoryMock.save(AnimeCreator.createUpdatedAnime()))
-                .thenReturn(Mono.just(anime));
+        BDDMockito.when(animeRepositoryMock.updateName(1, AnimeCreator.createUpdatedAnime().getName()))
+                .thenReturn(Mono.just(AnimeCreator.createUpdatedAnime()));
 
         client
                 .put()
@@ -317,7 +822,7 @@ public class AnimeControllerIT {
     @WithUserDetails(ADMIN_USER)
     public void update_ReturnMonoErro_WhenEmptyMonoIsReturned() {
 
-        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+        BDDMockito.when(animeRepositoryMock.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString()))
                 .thenReturn(Mono.empty());
 
         client
@@ -331,4 +836,47 @@ public class AnimeControllerIT {
                 .jsonPath("$.status").isEqualTo(404)
                 .jsonPath("$.developerMessage").isEqualTo("A ResponseStatusException Happened");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("update returns precondition failed when If-Match has an old version when is successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void update_ReturnPreconditionFailed_WhenIfMatchHasOldVersion() {
+
+        BDDMockito.when(animeRepositoryMock.updateNameIfVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString(), ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepositoryMock.existsById(1))
+                .thenReturn(Mono.just(true));
+
+        client
+                .put()
+                .uri("/animes/{id}", 1)
+                .header(HttpHeaders.IF_MATCH, "\"1-0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(AnimeCreator.createUpdatedAnime()))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(412);
+
+        BDDMockito.verify(animeRepositoryMock).updateNameIfVersion(1, AnimeCreator.createUpdatedAnime().getName(), 0);
+    }
+
+    @Test
+    @DisplayName("delete removes the anime when If-Match has the current version when is successfully authenticated and has role ADMIN")
+    @WithUserDetails(ADMIN_USER)
+    public void delete_RemovesAnime_WhenIfMatchHasCurrentVersion() {
+
+        BDDMockito.when(animeRepositoryMock.deleteAnimeByIdIfVersion(1, 1))
+                .thenReturn(Mono.just(1));
+
+        client
+            .delete()
+            .uri("/animes/{id}", 1)
+            .header(HttpHeaders.IF_MATCH, "\"1-1\"")
+            .exchange()
+            .expectStatus().isNoContent()
+            .expectBody()
+            .isEmpty();
+    }
+}
@@ -0,0 +1,179 @@
+package academy.devdojo.webflux.integration;
+
+import academy.devdojo.webflux.codec.AnimeMessages;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.proto.AnimeIdRequest;
+import academy.devdojo.webflux.proto.ListAnimesRequest;
+import academy.devdojo.webflux.proto.ReactorAnimeServiceGrpc;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.security.TokenService;
+import academy.devdojo.webflux.service.AnimeCache;
+import academy.devdojo.webflux.util.AnimeCreator;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.MetadataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "grpc.server.in-process-name=" + AnimeGrpcServiceIT.IN_PROCESS_NAME)
+public class AnimeGrpcServiceIT {
+
+    static final String IN_PROCESS_NAME = "anime-grpc-it";
+
+    private static final Metadata.Key<String> AUTHORIZATION = Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+    @MockBean
+    private AnimeRepository animeRepositoryMock;
+
+    @Autowired
+    private AnimeCache animeCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private ManagedChannel channel;
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @BeforeEach
+    public void setUp() {
+        animeCache.invalidateAll();
+        channel = InProcessChannelBuilder.forName(IN_PROCESS_NAME).directExecutor().build();
+
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(anime));
+
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.just(anime));
+
+        BDDMockito.when(animeRepositoryMock.streamAll(ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime, anime));
+
+        BDDMockito.when(animeRepositoryMock.insertAll(ArgumentMatchers.anyList()))
+                .thenReturn(Flux.just(anime, anime));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("get returns the anime when the bearer token has role USER")
+    public void get_ReturnAnime_WhenTokenHasRoleUser() {
+        stub("ROLE_USER").get(Mono.just(AnimeIdRequest.newBuilder().setId(1).build()))
+                .map(AnimeMessages::toAnime)
+                .as(StepVerifier::create)
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("get returns NOT_FOUND when the anime does not exist")
+    public void get_ReturnNotFound_WhenAnimeDoesNotExist() {
+        BDDMockito.when(animeRepositoryMock.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepositoryMock.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.empty());
+
+        stub("ROLE_USER").get(Mono.just(AnimeIdRequest.newBuilder().setId(1).build()))
+                .as(StepVerifier::create)
+                .expectErrorSatisfies(error -> Assertions.assertEquals(Status.Code.NOT_FOUND, code(error)))
+                .verify();
+    }
+
+    @Test
+    @DisplayName("get returns UNAUTHENTICATED when the call has no bearer token")
+    public void get_ReturnUnauthenticated_WhenTokenIsMissing() {
+        ReactorAnimeServiceGrpc.newReactorStub(channel).get(Mono.just(AnimeIdRequest.newBuilder().setId(1).build()))
+                .as(StepVerifier::create)
+                .expectErrorSatisfies(error -> Assertions.assertEquals(Status.Code.UNAUTHENTICATED, code(error)))
+                .verify();
+    }
+
+    @Test
+    @DisplayName("health answers without a bearer token, it is the only public service besides reflection")
+    public void health_ReturnServing_WhenCallHasNoToken() {
+        HealthCheckResponse response = HealthGrpc.newBlockingStub(channel).check(HealthCheckRequest.getDefaultInstance());
+
+        Assertions.assertEquals(HealthCheckResponse.ServingStatus.SERVING, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("list streams every anime when the bearer token has role ADMIN")
+    public void list_StreamAnimes_WhenTokenHasRoleAdmin() {
+        stub("ROLE_ADMIN", "ROLE_USER").list(Mono.just(ListAnimesRequest.getDefaultInstance()))
+                .map(AnimeMessages::toAnime)
+                .as(StepVerifier::create)
+                .expectNext(anime, anime)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("list returns PERMISSION_DENIED when the bearer token does not have role ADMIN")
+    public void list_ReturnPermissionDenied_WhenTokenDoesNotHaveRoleAdmin() {
+        stub("ROLE_USER").list(Mono.just(ListAnimesRequest.getDefaultInstance()))
+                .as(StepVerifier::create)
+                .expectErrorSatisfies(error -> Assertions.assertEquals(Status.Code.PERMISSION_DENIED, code(error)))
+                .verify();
+    }
+
+    @Test
+    @DisplayName("bulkInsert saves the streamed animes and returns how many were saved")
+    public void bulkInsert_SaveAnimes_WhenTokenHasRoleAdmin() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        stub("ROLE_ADMIN", "ROLE_USER").bulkInsert(Flux.just(animeToBeSaved, animeToBeSaved).map(AnimeMessages::toMessage))
+                .as(StepVerifier::create)
+                .assertNext(response -> {
+                    Assertions.assertEquals(2, response.getSaved());
+                    Assertions.assertEquals(1, response.getChunks());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("bulkInsert returns INVALID_ARGUMENT when an anime has an empty name")
+    public void bulkInsert_ReturnInvalidArgument_WhenNameIsEmpty() {
+        stub("ROLE_ADMIN", "ROLE_USER").bulkInsert(Flux.just(AnimeCreator.createAnimeToBeSaved().withName("")).map(AnimeMessages::toMessage))
+                .as(StepVerifier::create)
+                .expectErrorSatisfies(error -> Assertions.assertEquals(Status.Code.INVALID_ARGUMENT, code(error)))
+                .verify();
+    }
+
+    private ReactorAnimeServiceGrpc.ReactorAnimeServiceStub stub(String... authorities) {
+        String token = tokenService.issue(new UsernamePasswordAuthenticationToken("grpc-client", null,
+                AuthorityUtils.createAuthorityList(authorities)));
+        Metadata metadata = new Metadata();
+        metadata.put(AUTHORIZATION, "Bearer " + token);
+        return ReactorAnimeServiceGrpc.newReactorStub(channel)
+                .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(metadata));
+    }
+
+    private static Status.Code code(Throwable error) {
+        return ((StatusRuntimeException) error).getStatus().getCode();
+    }
+}
@@ -0,0 +1,57 @@
+package academy.devdojo.webflux.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QuerySamplingTurboFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    private final Logger queryLogger = loggerContext.getLogger("io.r2dbc.postgresql.QUERY");
+
+    private final Logger paramLogger = loggerContext.getLogger("io.r2dbc.postgresql.PARAM");
+
+    private QuerySamplingTurboFilter filter;
+
+    @BeforeEach
+    public void setUp(){
+        filter = new QuerySamplingTurboFilter();
+    }
+
+    @Test
+    @DisplayName("decide denies the query and its parameters when the query is not sampled")
+    public void decide_DenyQueryAndParams_WhenRateIsZero(){
+        filter.setRate(0);
+
+        Assertions.assertEquals(FilterReply.DENY, decide(queryLogger, "Executing query: {}"));
+        Assertions.assertEquals(FilterReply.DENY, decide(paramLogger, "Bind parameter [{}] to: {}"));
+    }
+
+    @Test
+    @DisplayName("decide lets the query and its parameters through when the query is sampled")
+    public void decide_AllowQueryAndParams_WhenRateIsOne(){
+        filter.setRate(1);
+
+        Assertions.assertEquals(FilterReply.NEUTRAL, decide(queryLogger, "Executing query: {}"));
+        Assertions.assertEquals(FilterReply.NEUTRAL, decide(paramLogger, "Bind parameter [{}] to: {}"));
+    }
+
+    @Test
+    @DisplayName("decide does not interfere with other loggers nor with level checks")
+    public void decide_ReturnNeutral_WhenOtherLoggerOrLevelCheck(){
+        filter.setRate(0);
+
+        Assertions.assertEquals(FilterReply.NEUTRAL, decide(loggerContext.getLogger("academy.devdojo.webflux"), "message"));
+        Assertions.assertEquals(FilterReply.NEUTRAL, decide(queryLogger, null));
+    }
+
+    private FilterReply decide(Logger logger, String format) {
+        return filter.decide(null, logger, Level.DEBUG, format, null, null);
+    }
+}
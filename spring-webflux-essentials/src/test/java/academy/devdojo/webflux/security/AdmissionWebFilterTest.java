@@ -0,0 +1,134 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class AdmissionWebFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Authentication user = new UsernamePasswordAuthenticationToken("user", null,
+            AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+    private AdmissionWebFilter admissionWebFilter;
+
+    @BeforeEach
+    public void setUp(){
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getRoles().put("USER", new AdmissionProperties.Limits(1, 2, 1));
+        admissionWebFilter = new AdmissionWebFilter(properties, meterRegistry, now::get);
+    }
+
+    @Test
+    @DisplayName("filter admits the burst and answers 429 with Retry-After above the rate")
+    public void filter_ReturnTooManyRequests_WhenRateIsExceeded(){
+        Assertions.assertNull(filter("/animes/1", user, completing()));
+        Assertions.assertNull(filter("/animes/2", user, completing()));
+
+        MockServerWebExchange rejected = exchange("/animes/3");
+        run(rejected, user, completing());
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        Assertions.assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(1, rejectedCount("rate"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertNull(filter("/animes/4", user, completing()));
+    }
+
+    @Test
+    @DisplayName("filter keeps a separate quota for each route")
+    public void filter_AdmitRequest_WhenOtherRouteIsExhausted(){
+        filter("/animes/1", user, completing());
+        filter("/animes/1", user, completing());
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter("/animes/1", user, completing()));
+        Assertions.assertNull(filter("/animes/page", user, completing()));
+    }
+
+    @Test
+    @DisplayName("filter answers 429 while the user has the maximum of requests in flight on the route")
+    public void filter_ReturnTooManyRequests_WhenConcurrencyIsExceeded(){
+        MockServerWebExchange inFlight = exchange("/animes/1");
+        admissionWebFilter.filter(inFlight, exchange -> Mono.never())
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(user))
+                .subscribe();
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter("/animes/2", user, completing()));
+        Assertions.assertEquals(1, rejectedCount("concurrency"));
+    }
+
+    @Test
+    @DisplayName("filter does not limit anonymous requests")
+    public void filter_AdmitRequest_WhenAnonymous(){
+        Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymous",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertNull(filter("/auth/token", anonymous, completing()));
+        }
+        Assertions.assertEquals(5, calls.get());
+    }
+
+    @Test
+    @DisplayName("constructor rejects a role with requests-per-second that is not positive")
+    public void constructor_ThrowIllegalArgumentException_WhenRequestsPerSecondIsNotPositive(){
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getRoles().put("USER", new AdmissionProperties.Limits(0, 2, 1));
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new AdmissionWebFilter(properties, meterRegistry, now::get));
+    }
+
+    private HttpStatus filter(String path, Authentication authentication, WebFilterChain chain) {
+        MockServerWebExchange exchange = exchange(path);
+        run(exchange, authentication, chain);
+        return exchange.getResponse().getStatusCode();
+    }
+
+    private void run(MockServerWebExchange exchange, Authentication authentication, WebFilterChain chain) {
+        StepVerifier.create(admissionWebFilter.filter(exchange, chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .verifyComplete();
+    }
+
+    private WebFilterChain completing() {
+        return exchange -> Mono.fromRunnable(calls::incrementAndGet);
+    }
+
+    private MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private double rejectedCount(String reason) {
+        return meterRegistry.get(AdmissionWebFilter.REJECTED_METRIC)
+                .tags("role", "USER", "reason", reason)
+                .counter()
+                .count();
+    }
+}
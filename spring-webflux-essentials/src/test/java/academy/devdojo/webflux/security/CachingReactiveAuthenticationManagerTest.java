@@ -0,0 +1,106 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AuthProperties;
+import academy.devdojo.webflux.domain.DevDojoUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
+
+@ExtendWith(SpringExtension.class)
+class CachingReactiveAuthenticationManagerTest {
+
+    @Mock
+    private ReactiveAuthenticationManager delegate;
+
+    private CredentialCache credentialCache;
+
+    private CachingReactiveAuthenticationManager authenticationManager;
+
+    private final DevDojoUser user = new DevDojoUser(1, "User", "user", "{bcrypt}hash", "ROLE_USER");
+
+    private final Authentication authenticated =
+            new UsernamePasswordAuthenticationToken(user, user.getPassword(), user.getAuthorities());
+
+    @BeforeEach
+    public void setUp(){
+        credentialCache = new CredentialCache(new AuthProperties());
+        authenticationManager = new CachingReactiveAuthenticationManager(delegate, credentialCache);
+
+        BDDMockito.when(delegate.authenticate(ArgumentMatchers.any()))
+                .thenReturn(Mono.just(authenticated));
+    }
+
+    @Test
+    @DisplayName("authenticate verifies the password only once for the same credentials")
+    public void authenticate_ReturnCachedAuthentication_WhenSameCredentials(){
+        StepVerifier.create(authenticationManager.authenticate(credentials("user", "devdojo"))
+                        .then(authenticationManager.authenticate(credentials("user", "devdojo"))))
+                .expectSubscription()
+                .expectNext(authenticated)
+                .verifyComplete();
+
+        BDDMockito.verify(delegate, BDDMockito.times(1)).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("authenticate verifies the password only once when the same credentials arrive at the same time")
+    public void authenticate_ShareVerification_WhenConcurrentSameCredentials(){
+        Sinks.One<Authentication> verification = Sinks.one();
+        BDDMockito.when(delegate.authenticate(ArgumentMatchers.any()))
+                .thenReturn(verification.asMono());
+
+        StepVerifier.create(Mono.zip(authenticationManager.authenticate(credentials("user", "devdojo")),
+                        authenticationManager.authenticate(credentials("user", "devdojo"))))
+                .then(() -> verification.tryEmitValue(authenticated))
+                .expectNext(Tuples.of(authenticated, authenticated))
+                .verifyComplete();
+
+        BDDMockito.verify(delegate, BDDMockito.times(1)).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("authenticate verifies again when the password is different")
+    public void authenticate_CallDelegate_WhenPasswordIsDifferent(){
+
+        BDDMockito.when(delegate.authenticate(credentials("user", "wrong")))
+                .thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")));
+
+        StepVerifier.create(authenticationManager.authenticate(credentials("user", "devdojo"))
+                        .then(authenticationManager.authenticate(credentials("user", "wrong"))))
+                .expectSubscription()
+                .expectError(BadCredentialsException.class)
+                .verify();
+
+        BDDMockito.verify(delegate, BDDMockito.times(2)).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("authenticate verifies again after the user row is saved")
+    public void authenticate_CallDelegate_WhenUserWasSaved(){
+        StepVerifier.create(authenticationManager.authenticate(credentials("user", "devdojo"))
+                        .then(Mono.defer(() -> Mono.from(credentialCache.onAfterSave(user, null, null))))
+                        .then(authenticationManager.authenticate(credentials("user", "devdojo"))))
+                .expectSubscription()
+                .expectNext(authenticated)
+                .verifyComplete();
+
+        BDDMockito.verify(delegate, BDDMockito.times(2)).authenticate(ArgumentMatchers.any());
+    }
+
+    private Authentication credentials(String username, String password) {
+        return new UsernamePasswordAuthenticationToken(username, password);
+    }
+}
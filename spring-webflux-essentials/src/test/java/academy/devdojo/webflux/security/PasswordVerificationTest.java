@@ -0,0 +1,86 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AuthProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+class PasswordVerificationTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordVerification passwordVerification;
+
+    @BeforeEach
+    public void setUp(){
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getPasswordVerification().setThreads(1);
+        authProperties.getPasswordVerification().setQueueCapacity(1);
+        authProperties.getPasswordVerification().setBcryptStrength(5);
+        passwordVerification = new PasswordVerification(authProperties, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        passwordVerification.destroy();
+    }
+
+    @Test
+    @DisplayName("scheduler rejects new verifications when the thread and the queue are busy")
+    public void scheduler_RejectVerification_WhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable busy = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        passwordVerification.getScheduler().schedule(busy);
+        passwordVerification.getScheduler().schedule(busy);
+
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> passwordVerification.getScheduler().schedule(busy));
+        Assertions.assertEquals(1.0, meterRegistry.get("auth.password.verification.rejected").functionCounter().count());
+        Assertions.assertEquals(1.0, meterRegistry.get("auth.password.verification.queue").gauge().value());
+
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("passwordEncoder records the hash time of each verification")
+    public void passwordEncoder_RecordHashTime_WhenMatching(){
+        String encoded = passwordVerification.getPasswordEncoder().encode("devdojo");
+
+        Assertions.assertTrue(passwordVerification.getPasswordEncoder().matches("devdojo", encoded));
+        Assertions.assertEquals(2, meterRegistry.get("auth.password.hash").timer().count());
+    }
+
+    @Test
+    @DisplayName("passwordEncoder asks to upgrade hashes stored with a lower bcrypt cost")
+    public void passwordEncoder_UpgradeEncoding_WhenStoredCostIsLower(){
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("devdojo");
+        String current = passwordVerification.getPasswordEncoder().encode("devdojo");
+
+        Assertions.assertTrue(passwordVerification.getPasswordEncoder().upgradeEncoding(weaker));
+        Assertions.assertFalse(passwordVerification.getPasswordEncoder().upgradeEncoding(current));
+    }
+
+    @Test
+    @DisplayName("passwordEncoder still matches passwords stored with the other PasswordEncoderFactories ids")
+    public void passwordEncoder_MatchOtherEncodings_WhenStoredWithAnotherId(){
+        Assertions.assertTrue(passwordVerification.getPasswordEncoder().matches("devdojo", "{noop}devdojo"));
+        Assertions.assertTrue(passwordVerification.getPasswordEncoder().matches("devdojo",
+                "{pbkdf2}" + new Pbkdf2PasswordEncoder().encode("devdojo")));
+        Assertions.assertTrue(passwordVerification.getPasswordEncoder().upgradeEncoding("{noop}devdojo"));
+    }
+}
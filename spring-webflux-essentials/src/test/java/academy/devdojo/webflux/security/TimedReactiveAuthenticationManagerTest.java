@@ -0,0 +1,88 @@
+package academy.devdojo.webflux.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class TimedReactiveAuthenticationManagerTest {
+
+    @Mock
+    private ReactiveAuthenticationManager delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TimedReactiveAuthenticationManager authenticationManager;
+
+    private final Authentication credentials = new UsernamePasswordAuthenticationToken("user", "devdojo");
+
+    @BeforeEach
+    public void setUp(){
+        authenticationManager = new TimedReactiveAuthenticationManager(delegate, meterRegistry, "password");
+    }
+
+    @Test
+    @DisplayName("authenticate records the time tagged as success when credentials are valid")
+    public void authenticate_RecordSuccess_WhenCredentialsAreValid(){
+        BDDMockito.when(delegate.authenticate(ArgumentMatchers.any()))
+                .thenReturn(Mono.just(credentials));
+
+        StepVerifier.create(authenticationManager.authenticate(credentials))
+                .expectSubscription()
+                .expectNext(credentials)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, count("success"));
+        Assertions.assertEquals(0, count("failure"));
+    }
+
+    @Test
+    @DisplayName("authenticate records the time tagged as failure when credentials are invalid")
+    public void authenticate_RecordFailure_WhenBadCredentials(){
+        BDDMockito.when(delegate.authenticate(ArgumentMatchers.any()))
+                .thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")));
+
+        StepVerifier.create(authenticationManager.authenticate(credentials))
+                .expectSubscription()
+                .expectError(BadCredentialsException.class)
+                .verify();
+
+        Assertions.assertEquals(1, count("failure"));
+    }
+
+    @Test
+    @DisplayName("authenticate records the time tagged as overloaded when password verification rejects the login")
+    public void authenticate_RecordOverloaded_WhenServiceUnavailable(){
+        BDDMockito.when(delegate.authenticate(ArgumentMatchers.any()))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE)));
+
+        StepVerifier.create(authenticationManager.authenticate(credentials))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        Assertions.assertEquals(1, count("overloaded"));
+    }
+
+    private long count(String outcome) {
+        return meterRegistry.get(TimedReactiveAuthenticationManager.METRIC)
+                .tags("mechanism", "password", "outcome", outcome)
+                .timer()
+                .count();
+    }
+}
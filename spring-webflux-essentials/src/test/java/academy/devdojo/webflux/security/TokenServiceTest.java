@@ -0,0 +1,69 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.config.AuthProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+
+class TokenServiceTest {
+
+    private final Authentication authentication = new UsernamePasswordAuthenticationToken("nelson", null,
+            AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+
+    @Test
+    @DisplayName("verify returns the authentication with the roles when the token was issued by the same secret")
+    public void verify_ReturnAuthentication_WhenTokenIsValid(){
+        TokenService tokenService = tokenService("secret", Duration.ofMinutes(5));
+
+        Authentication verified = tokenService.verify(tokenService.issue(authentication)).orElseThrow();
+
+        Assertions.assertEquals("nelson", verified.getName());
+        Assertions.assertEquals(authentication.getAuthorities(), verified.getAuthorities());
+        Assertions.assertTrue(verified.isAuthenticated());
+    }
+
+    @Test
+    @DisplayName("verify returns empty when the token was signed with another secret")
+    public void verify_ReturnEmpty_WhenSignatureDoesNotMatch(){
+        String token = tokenService("other-secret", Duration.ofMinutes(5)).issue(authentication);
+
+        Assertions.assertTrue(tokenService("secret", Duration.ofMinutes(5)).verify(token).isEmpty());
+    }
+
+    @Test
+    @DisplayName("verify returns empty when the payload was tampered")
+    public void verify_ReturnEmpty_WhenPayloadWasTampered(){
+        TokenService tokenService = tokenService("secret", Duration.ofMinutes(5));
+        String[] parts = tokenService.issue(authentication).split("\\.");
+        String tampered = parts[0] + "." + parts[1].substring(1) + "." + parts[2];
+
+        Assertions.assertTrue(tokenService.verify(tampered).isEmpty());
+    }
+
+    @Test
+    @DisplayName("verify returns empty when the token is expired")
+    public void verify_ReturnEmpty_WhenTokenIsExpired(){
+        TokenService tokenService = tokenService("secret", Duration.ofSeconds(-1));
+
+        Assertions.assertTrue(tokenService.verify(tokenService.issue(authentication)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("verify returns empty when the token is malformed")
+    public void verify_ReturnEmpty_WhenTokenIsMalformed(){
+        Assertions.assertTrue(tokenService("secret", Duration.ofMinutes(5)).verify("not.a.token").isEmpty());
+    }
+
+    private TokenService tokenService(String secret, Duration ttl) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getToken().setSecret(secret);
+        authProperties.getToken().setTtl(ttl);
+        return new TokenService(authProperties, new ObjectMapper());
+    }
+}
@@ -0,0 +1,108 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.config.DatabaseProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.util.AnimeCreator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+@ExtendWith(SpringExtension.class)
+class AnimeBatchLoaderTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    private AnimeBatchLoader animeBatchLoader;
+
+    @BeforeEach
+    public void setUp(){
+        AnimeProperties animeProperties = new AnimeProperties();
+        animeProperties.getLoader().setWindow(Duration.ofMillis(20));
+        animeProperties.getLoader().setMaxBatchSize(10);
+        DatabaseProperties databaseProperties = new DatabaseProperties();
+        databaseProperties.getPool().setMaxSize(1);
+        animeBatchLoader = new AnimeBatchLoader(animeRepository, animeProperties, databaseProperties, meterRegistry);
+
+        BDDMockito.when(animeRepository.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.just(anime.withId(1), anime.withId(2)));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        animeBatchLoader.destroy();
+    }
+
+    @Test
+    @DisplayName("load resolves concurrent lookups with a single query")
+    public void load_ResolveConcurrentLoadsWithOneQuery_WhenInsideTheWindow(){
+        StepVerifier.create(Flux.merge(animeBatchLoader.load(1), animeBatchLoader.load(2), animeBatchLoader.load(1)))
+                .expectSubscription()
+                .recordWith(ArrayList::new)
+                .expectNextCount(3)
+                .consumeRecordedWith(animes -> Assertions.assertTrue(animes.contains(anime.withId(2))))
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(1)).findByIds(new Integer[]{1, 2});
+        Assertions.assertEquals(1, meterRegistry.get("anime.loader.batch.size").summary().count());
+        Assertions.assertEquals(3.0, meterRegistry.get("anime.loader.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("load completes empty when the id does not exist")
+    public void load_ReturnEmpty_WhenIdDoesNotExist(){
+        StepVerifier.create(animeBatchLoader.load(3))
+                .expectSubscription()
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("load splits the lookups when they exceed the max batch size")
+    public void load_SplitBatches_WhenMaxBatchSizeIsReached(){
+        StepVerifier.create(Flux.range(1, 15).flatMap(animeBatchLoader::load))
+                .expectSubscription()
+                .expectNextCount(2)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(2)).findByIds(ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("load sends the next batch only when a pool connection is free")
+    public void load_WaitForPreviousBatch_WhenPoolIsBusy(){
+        Sinks.One<Anime> firstQuery = Sinks.one();
+        BDDMockito.when(animeRepository.findByIds(ArgumentMatchers.any()))
+                .thenReturn(firstQuery.asMono().flux(), Flux.just(anime.withId(11)));
+
+        StepVerifier.create(Flux.range(1, 11).flatMap(animeBatchLoader::load))
+                .expectSubscription()
+                .then(() -> BDDMockito.verify(animeRepository, BDDMockito.timeout(1000).times(1)).findByIds(ArgumentMatchers.any()))
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(() -> BDDMockito.verify(animeRepository, BDDMockito.times(1)).findByIds(ArgumentMatchers.any()))
+                .then(() -> firstQuery.tryEmitValue(anime.withId(1)))
+                .expectNext(anime.withId(1), anime.withId(11))
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(2)).findByIds(ArgumentMatchers.any());
+    }
+}
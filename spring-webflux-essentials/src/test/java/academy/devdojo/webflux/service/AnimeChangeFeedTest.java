@@ -0,0 +1,119 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+class AnimeChangeFeedTest {
+
+    private static final int REPLAY_SIZE = 4;
+
+    private static final int SUBSCRIBER_BUFFER = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AnimeChangeFeed animeChangeFeed;
+
+    @BeforeEach
+    public void setUp(){
+        AnimeProperties animeProperties = new AnimeProperties();
+        animeProperties.getChanges().setReplaySize(REPLAY_SIZE);
+        animeProperties.getChanges().setSubscriberBuffer(SUBSCRIBER_BUFFER);
+        animeChangeFeed = new AnimeChangeFeed(animeProperties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("changes without Last-Event-ID emits only the changes published after subscribing")
+    public void changes_EmitOnlyNewChanges_WhenLastEventIdIsNotInformed(){
+        publish(1);
+
+        StepVerifier.create(animeChangeFeed.changes(null).map(AnimeChange::getAnimeId))
+                .then(() -> publish(2))
+                .expectNext(2)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("changes resumes right after the Last-Event-ID when it is still in the replay buffer")
+    public void changes_ResumeAfterLastEventId_WhenChangesAreBuffered(){
+        publish(1);
+        long lastEventId = animeChangeFeed.latestSequence();
+        publish(2);
+        publish(3);
+
+        StepVerifier.create(animeChangeFeed.changes(lastEventId).map(AnimeChange::getAnimeId))
+                .expectNext(2, 3)
+                .then(() -> publish(4))
+                .expectNext(4)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("changes emits RESET first when the changes after Last-Event-ID already left the replay buffer")
+    public void changes_EmitReset_WhenLastEventIdIsOlderThanReplayBuffer(){
+        long lastEventId = animeChangeFeed.latestSequence();
+        for (int id = 1; id <= REPLAY_SIZE + 2; id++) {
+            publish(id);
+        }
+
+        StepVerifier.create(animeChangeFeed.changes(lastEventId))
+                .assertNext(change -> {
+                    Assertions.assertEquals(AnimeChange.Type.RESET, change.getType());
+                    Assertions.assertEquals(lastEventId + 2, change.getSequence());
+                })
+                .expectNextCount(REPLAY_SIZE)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("changes emits RESET right away when the Last-Event-ID is from before a restart, even without new writes")
+    public void changes_EmitReset_WhenLastEventIdIsFromPreviousRun(){
+        long latestSequence = animeChangeFeed.latestSequence();
+
+        StepVerifier.create(animeChangeFeed.changes(latestSequence - 1000))
+                .assertNext(change -> {
+                    Assertions.assertEquals(AnimeChange.Type.RESET, change.getType());
+                    Assertions.assertEquals(latestSequence, change.getSequence());
+                })
+                .then(() -> publish(1))
+                .assertNext(change -> Assertions.assertEquals(1, change.getAnimeId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("a subscriber without demand gets a RESET and is dropped once its buffer is full while writers keep publishing")
+    public void changes_DropSlowSubscriber_WhenBufferOverflows(){
+        StepVerifier.create(animeChangeFeed.changes(null), 0)
+                .then(() -> {
+                    for (int id = 1; id <= SUBSCRIBER_BUFFER + 1; id++) {
+                        publish(id);
+                    }
+                })
+                // O que ja estava na fila ainda e entregue, o RESET marca a lacuna logo depois
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(SUBSCRIBER_BUFFER)
+                .assertNext(change -> {
+                    Assertions.assertEquals(AnimeChange.Type.RESET, change.getType());
+                    Assertions.assertEquals(animeChangeFeed.latestSequence(), change.getSequence());
+                })
+                .verifyComplete();
+
+        Assertions.assertEquals(1, meterRegistry.counter(AnimeChangeFeed.DROPPED_METRIC).count());
+    }
+
+    private void publish(int id) {
+        animeChangeFeed.published(AnimeChange.Type.CREATED, new Anime(id, "Anime " + id, 0));
+    }
+}
@@ -0,0 +1,117 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class AnimeNameIndexTest {
+
+    private AnimeNameIndex animeNameIndex;
+
+    @BeforeEach
+    public void setUp(){
+        AnimeProperties animeProperties = new AnimeProperties();
+        animeProperties.getSuggest().setCompactionThreshold(4);
+        // Compactacao na propria thread para o teste ser deterministico
+        animeNameIndex = new AnimeNameIndex(animeProperties, Runnable::run);
+        animeNameIndex.replaceAll(new int[]{3, 1, 2, 4},
+                new String[]{"Naruto Shippuden", "Naruto", "Dragon Ball", "naruto Boruto"});
+    }
+
+    @Test
+    @DisplayName("suggest returns the names starting with the prefix ignoring case, in name order")
+    public void suggest_ReturnNamesByPrefix_WhenNamesMatch(){
+        Assertions.assertEquals(List.of(
+                        new AnimeSuggestion(1, "Naruto"),
+                        new AnimeSuggestion(4, "naruto Boruto"),
+                        new AnimeSuggestion(3, "Naruto Shippuden")),
+                animeNameIndex.suggest("NARU", 10));
+
+        Assertions.assertEquals(List.of(new AnimeSuggestion(1, "Naruto")), animeNameIndex.suggest("naru", 1));
+        Assertions.assertTrue(animeNameIndex.suggest("One", 10).isEmpty());
+        Assertions.assertTrue(animeNameIndex.isReady());
+    }
+
+    @Test
+    @DisplayName("put replaces the previous name of the anime and merges new animes in order")
+    public void put_ReplacePreviousName_WhenAnimeIsRenamed(){
+        animeNameIndex.put(1, "One Piece");
+        animeNameIndex.put(5, "Naruto Next Generations");
+
+        Assertions.assertEquals(List.of(
+                        new AnimeSuggestion(4, "naruto Boruto"),
+                        new AnimeSuggestion(5, "Naruto Next Generations"),
+                        new AnimeSuggestion(3, "Naruto Shippuden")),
+                animeNameIndex.suggest("naruto", 10));
+        Assertions.assertEquals(List.of(new AnimeSuggestion(1, "One Piece")), animeNameIndex.suggest("o", 10));
+    }
+
+    @Test
+    @DisplayName("remove hides the anime from the suggestions")
+    public void remove_HideAnime_WhenAnimeIsDeleted(){
+        animeNameIndex.remove(4);
+        animeNameIndex.put(6, "Naruto Movie");
+        animeNameIndex.remove(6);
+
+        Assertions.assertEquals(List.of(
+                        new AnimeSuggestion(1, "Naruto"),
+                        new AnimeSuggestion(3, "Naruto Shippuden")),
+                animeNameIndex.suggest("naruto", 10));
+    }
+
+    @Test
+    @DisplayName("suggest keeps the same answers after the writes are compacted into the base")
+    public void suggest_KeepAnswers_WhenWritesAreCompacted(){
+        for (int id = 10; id < 20; id++) {
+            animeNameIndex.put(id, "Bleach " + id);
+        }
+        animeNameIndex.remove(2);
+
+        List<AnimeSuggestion> bleach = animeNameIndex.suggest("bleach 1", 20);
+        Assertions.assertEquals(10, bleach.size());
+        Assertions.assertEquals(new AnimeSuggestion(10, "Bleach 10"), bleach.get(0));
+        Assertions.assertTrue(animeNameIndex.suggest("dragon", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("replaceAll keeps the writes made while the database was being read")
+    public void replaceAll_KeepConcurrentWrites_WhenLoadFinishesAfterThem(){
+        AnimeNameIndex loading = new AnimeNameIndex(new AnimeProperties());
+        Assertions.assertFalse(loading.isReady());
+
+        loading.beginReload();
+        loading.put(1, "Naruto Shippuden");
+        loading.remove(2);
+        loading.replaceAll(new int[]{1, 2, 3}, new String[]{"Naruto", "Naruto Movie", "Naruto The Last"});
+
+        Assertions.assertEquals(List.of(
+                        new AnimeSuggestion(1, "Naruto Shippuden"),
+                        new AnimeSuggestion(3, "Naruto The Last")),
+                loading.suggest("naruto", 10));
+    }
+
+    @Test
+    @DisplayName("replaceAll drops the writes the reloaded database already reflects, an old name does not hide a newer one")
+    public void replaceAll_DropReflectedWrites_WhenWrittenBeforeReload(){
+        animeNameIndex.put(1, "Naruto Classic");
+        animeNameIndex.remove(2);
+
+        animeNameIndex.beginReload();
+        animeNameIndex.put(4, "Boruto");
+        animeNameIndex.put(3, "Naruto Shippuden");
+        animeNameIndex.replaceAll(new int[]{1, 2, 3, 4},
+                new String[]{"Naruto", "Dragon Ball Z", "Naruto Shippuden", "naruto Boruto"});
+
+        Assertions.assertEquals(List.of(
+                        new AnimeSuggestion(1, "Naruto"),
+                        new AnimeSuggestion(3, "Naruto Shippuden")),
+                animeNameIndex.suggest("naruto", 10));
+        Assertions.assertEquals(List.of(new AnimeSuggestion(4, "Boruto")), animeNameIndex.suggest("bor", 10));
+        Assertions.assertEquals(List.of(new AnimeSuggestion(2, "Dragon Ball Z")), animeNameIndex.suggest("dragon", 10));
+    }
+}
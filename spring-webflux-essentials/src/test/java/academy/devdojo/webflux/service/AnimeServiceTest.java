@@ -1,26 +1,41 @@
 package academy.devdojo.webflux.service;
 
+import academy.devdojo.webflux.config.AnimeProperties;
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChange;
+import academy.devdojo.webflux.domain.AnimeChunkAck;
+import academy.devdojo.webflux.domain.AnimeSuggestion;
 import academy.devdojo.webflux.repository.AnimeRepository;
 import academy.devdojo.webflux.util.AnimeCreator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.reactivestreams.Subscription;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ExtendWith(SpringExtension.class)
 class AnimeServiceTest {
@@ -31,6 +46,27 @@ class AnimeServiceTest {
     @Mock
     private AnimeRepository animeRepository;
 
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private AnimeProperties animeProperties = new AnimeProperties();
+
+    @Spy
+    private AnimeCache animeCache = new AnimeCache(new AnimeProperties());
+
+    @Mock
+    private AnimeBatchLoader animeBatchLoader;
+
+    @Spy
+    private AnimeNameIndex animeNameIndex = new AnimeNameIndex(new AnimeProperties());
+
+    @Spy
+    private AnimeChangeFeed animeChangeFeed = new AnimeChangeFeed(new AnimeProperties(), new SimpleMeterRegistry());
+
+    @Mock
+    private AnimeSnapshot animeSnapshot;
+
     private final Anime anime = AnimeCreator.createAnimeToBeSaved();
 
     @BeforeAll
@@ -62,17 +98,29 @@ class AnimeServiceTest {
         BDDMockito.when(animeRepository.findById(ArgumentMatchers.anyInt()))
                 .thenReturn(Mono.just(anime));
 
+        BDDMockito.when(animeBatchLoader.load(ArgumentMatchers.anyInt()))
+                .thenAnswer(invocation -> animeRepository.findById((int) invocation.<Integer>getArgument(0)));
+
         BDDMockito.when(animeRepository.save(AnimeCreator.createAnimeToBeSaved()))
                 .thenReturn(Mono.just(anime));
 
-        BDDMockito.when(animeRepository.saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
+        BDDMockito.when(animeRepository.insertAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .thenReturn(Flux.just(anime, anime));
 
-        BDDMockito.when(animeRepository.delete(ArgumentMatchers.any(Anime.class)))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(transactionalOperator.transactional(ArgumentMatchers.<Flux<Anime>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
 
-        BDDMockito.when(animeRepository.save(AnimeCreator.createValidAnime()))
-                .thenReturn(Mono.just(anime));
+        BDDMockito.when(animeRepository.deleteAnimeById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(1));
+
+        BDDMockito.when(animeRepository.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString()))
+                .thenReturn(Mono.just(AnimeCreator.createValidAnime()));
+
+        BDDMockito.when(animeRepository.findPage(ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime.withId(1), anime.withId(2), anime.withId(3)));
+
+        BDDMockito.when(animeRepository.estimateCount())
+                .thenReturn(Mono.just(3L));
     }
 
     @Test
@@ -84,6 +132,216 @@ class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("streamAll keeps the animes in flight bounded by the fetch size while a slow subscriber consumes 1M rows")
+    public void streamAll_KeepAnimesInFlightBounded_WhenSubscriberIsSlow(){
+        int rows = 1_000_000;
+        int fetchSize = animeProperties.getStream().getFetchSize();
+        AtomicLong fetched = new AtomicLong();
+        AtomicLong maxInFlight = new AtomicLong();
+
+        BDDMockito.when(animeRepository.streamAll(fetchSize))
+                .thenReturn(Flux.range(1, rows)
+                        .map(anime::withId)
+                        .doOnNext(row -> fetched.incrementAndGet()));
+
+        BaseSubscriber<Anime> slowSubscriber = new BaseSubscriber<>() {
+            private long consumed;
+
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(Anime value) {
+                consumed++;
+                maxInFlight.accumulateAndGet(fetched.get() - consumed, Math::max);
+                request(1);
+            }
+        };
+
+        animeService.streamAll().subscribe(slowSubscriber);
+
+        Assertions.assertTrue(slowSubscriber.isDisposed());
+        Assertions.assertEquals(rows, fetched.get());
+        Assertions.assertTrue(maxInFlight.get() <= fetchSize,
+                "rows buffered ahead of the subscriber: " + maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("findPage returns the first page and the cursor of the next page")
+    public void findPage_ReturnPageWithNextCursor_WhenThereAreMoreAnimes(){
+        StepVerifier.create(animeService.findPage(null, 2, false))
+                .expectSubscription()
+                .assertNext(page -> {
+                    Assertions.assertEquals(2, page.getContent().size());
+                    Assertions.assertNotNull(page.getNext());
+                    Assertions.assertEquals(3L, page.getTotal());
+                    Assertions.assertTrue(page.isEstimatedTotal());
+                })
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository).findPage(0, 3);
+    }
+
+    @Test
+    @DisplayName("findPage continues after the last id of the previous page")
+    public void findPage_ContinueAfterCursor_WhenCursorIsInformed(){
+        String next = animeService.findPage(null, 2, false).block().getNext();
+
+        BDDMockito.when(animeRepository.findPage(2, 3))
+                .thenReturn(Flux.just(anime.withId(3)));
+
+        StepVerifier.create(animeService.findPage(next, 2, false))
+                .expectSubscription()
+                .assertNext(page -> {
+                    Assertions.assertEquals(1, page.getContent().size());
+                    Assertions.assertNull(page.getNext());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findPage returns Mono error when cursor is invalid")
+    public void findPage_ReturnMonoError_WhenCursorIsInvalid(){
+        StepVerifier.create(animeService.findPage("not-a-cursor", 2, false))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("findPage and search return Mono error when the cursor is negative")
+    public void findPageAndSearch_ReturnMonoError_WhenCursorIsNegative(){
+        String negative = cursor(-20);
+
+        StepVerifier.create(animeService.findPage(negative, 2, false))
+                .expectSubscription()
+                .expectErrorMatches(error -> hasStatus(error, HttpStatus.BAD_REQUEST))
+                .verify();
+
+        StepVerifier.create(animeService.search("dragon", negative, 2, false))
+                .expectSubscription()
+                .expectErrorMatches(error -> hasStatus(error, HttpStatus.BAD_REQUEST))
+                .verify();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).search(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(), ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("search rejects offsets above the maximum and stops handing out cursors at it")
+    public void search_ReturnMonoError_WhenOffsetIsAboveMaximum(){
+        BDDMockito.when(animeRepository.search("dragon", "%dragon%", "dragon%", 3, AnimeService.MAX_SEARCH_OFFSET - 1))
+                .thenReturn(Flux.just(anime.withId(1), anime.withId(2), anime.withId(3)));
+
+        StepVerifier.create(animeService.search("dragon", cursor(AnimeService.MAX_SEARCH_OFFSET - 1), 2, false))
+                .expectSubscription()
+                .assertNext(page -> Assertions.assertNull(page.getNext()))
+                .verifyComplete();
+
+        StepVerifier.create(animeService.search("dragon", cursor(AnimeService.MAX_SEARCH_OFFSET + 1), 2, false))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("search returns the first ranked page and the offset of the next page")
+    public void search_ReturnPageWithNextCursor_WhenThereAreMoreAnimes(){
+        BDDMockito.when(animeRepository.search("dragon", "%dragon%", "dragon%", 3, 0))
+                .thenReturn(Flux.just(anime.withId(1), anime.withId(2), anime.withId(3)));
+
+        BDDMockito.when(animeRepository.search("dragon", "%dragon%", "dragon%", 3, 2))
+                .thenReturn(Flux.just(anime.withId(3)));
+
+        String next = animeService.search(" dragon ", null, 2, false).block().getNext();
+
+        StepVerifier.create(animeService.search("dragon", next, 2, false))
+                .expectSubscription()
+                .assertNext(page -> {
+                    Assertions.assertEquals(List.of(anime.withId(3)), page.getContent());
+                    Assertions.assertNull(page.getNext());
+                    Assertions.assertEquals(3L, page.getTotal());
+                    Assertions.assertTrue(page.isEstimatedTotal());
+                })
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).countSearch(ArgumentMatchers.anyString());
+    }
+
+    @Test
+    @DisplayName("search escapes the LIKE wildcards and counts the matches when the exact total is asked")
+    public void search_EscapeWildcardsAndCount_WhenExactTotalIsAsked(){
+        BDDMockito.when(animeRepository.search(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(),
+                        ArgumentMatchers.anyString(), ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt()))
+                .thenReturn(Flux.just(anime.withId(1)));
+
+        BDDMockito.when(animeRepository.countSearch("%100\\%\\_%"))
+                .thenReturn(Mono.just(1L));
+
+        StepVerifier.create(animeService.search("100%_", null, 20, true))
+                .expectSubscription()
+                .assertNext(page -> {
+                    Assertions.assertEquals(1L, page.getTotal());
+                    Assertions.assertFalse(page.isEstimatedTotal());
+                })
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository).search("100%_", "%100\\%\\_%", "100\\%\\_%", 21, 0);
+    }
+
+    @Test
+    @DisplayName("suggest returns the animes saved by this instance from the name index")
+    public void suggest_ReturnIndexedAnimes_WhenIndexIsReady(){
+        animeNameIndex.replaceAll(new int[]{1}, new String[]{"Naruto"});
+
+        BDDMockito.when(animeRepository.save(AnimeCreator.createAnimeToBeSaved()))
+                .thenReturn(Mono.just(AnimeCreator.createValidAnime().withId(2)));
+
+        StepVerifier.create(animeService.save(AnimeCreator.createAnimeToBeSaved())
+                        .thenMany(animeService.suggest("dRAG", 10)))
+                .expectSubscription()
+                .expectNext(new AnimeSuggestion(2, "Dragon Ball"))
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).search(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(), ArgumentMatchers.anyInt(), ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("suggest drops deleted animes from the name index")
+    public void suggest_IgnoreDeletedAnime_WhenDeleteIsSuccessful(){
+        animeNameIndex.replaceAll(new int[]{1, 2}, new String[]{"Dragon Ball", "Dragon Ball Z"});
+
+        StepVerifier.create(animeService.delete(1).thenMany(animeService.suggest("dragon", 10)))
+                .expectSubscription()
+                .expectNext(new AnimeSuggestion(2, "Dragon Ball Z"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("suggest searches the database by prefix while the name index is not loaded")
+    public void suggest_SearchDatabase_WhenIndexIsNotReady(){
+        BDDMockito.when(animeRepository.search("drag", "drag%", "drag%", 10, 0))
+                .thenReturn(Flux.just(AnimeCreator.createValidAnime()));
+
+        StepVerifier.create(animeService.suggest("drag", 50))
+                .expectSubscription()
+                .expectNext(new AnimeSuggestion(1, "Dragon Ball"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("search returns Mono error when the query is blank")
+    public void search_ReturnMonoError_WhenQueryIsBlank(){
+        StepVerifier.create(animeService.search("  ", null, 20, false))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
     @Test
     @DisplayName("findById returns Mono with anime when it exists")
     public void findById_ReturnMonoAnime_WhenSuccessful(){
@@ -106,6 +364,154 @@ class AnimeServiceTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("findById and findAll read from the snapshot without going to the database when it is ready")
+    public void findById_ReadFromSnapshot_WhenSnapshotIsReady(){
+        animeProperties.getSnapshot().setReads(AnimeProperties.ReadSource.SNAPSHOT);
+        Anime fromSnapshot = AnimeCreator.createValidAnime();
+        BDDMockito.when(animeSnapshot.isReady()).thenReturn(true);
+        BDDMockito.when(animeSnapshot.get(1)).thenReturn(fromSnapshot);
+        BDDMockito.when(animeSnapshot.all()).thenReturn(Flux.just(fromSnapshot));
+
+        StepVerifier.create(animeService.findById(1))
+                .expectNext(fromSnapshot)
+                .verifyComplete();
+
+        StepVerifier.create(animeService.findById(2))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        StepVerifier.create(animeService.findAll())
+                .expectNext(fromSnapshot)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).findById(ArgumentMatchers.anyInt());
+        BDDMockito.verify(animeRepository, BDDMockito.never()).findAll();
+    }
+
+    @Test
+    @DisplayName("findAllWithFingerprint takes the ETag and the animes from the snapshot when it is ready")
+    public void findAllWithFingerprint_UseSnapshotFingerprint_WhenSnapshotIsReady(){
+        animeProperties.getSnapshot().setReads(AnimeProperties.ReadSource.SNAPSHOT);
+        Anime fromSnapshot = AnimeCreator.createValidAnime();
+        BDDMockito.when(animeSnapshot.isReady()).thenReturn(true);
+        BDDMockito.when(animeSnapshot.fingerprint()).thenReturn("snapshot-1-2");
+        BDDMockito.when(animeSnapshot.all()).thenReturn(Flux.just(fromSnapshot));
+
+        StepVerifier.create(animeService.findAllWithFingerprint())
+                .assertNext(catalog -> {
+                    Assertions.assertEquals("snapshot-1-2", catalog.getT1());
+                    StepVerifier.create(catalog.getT2())
+                            .expectNext(fromSnapshot)
+                            .verifyComplete();
+                })
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).fingerprint();
+        BDDMockito.verify(animeRepository, BDDMockito.never()).findAll();
+    }
+
+    @Test
+    @DisplayName("findByIds returns the animes of the distinct ids with one query")
+    public void findByIds_ReturnFluxOfAnime_WhenSuccessful(){
+        BDDMockito.when(animeRepository.findByIds(ArgumentMatchers.any()))
+                .thenReturn(Flux.just(anime.withId(1), anime.withId(2)));
+
+        StepVerifier.create(animeService.findByIds(List.of(1, 2, 2)))
+                .expectSubscription()
+                .expectNext(anime.withId(1), anime.withId(2))
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository).findByIds(new Integer[]{1, 2});
+    }
+
+    @Test
+    @DisplayName("findByIds returns Mono error when there are more ids than the limit")
+    public void findByIds_ReturnError_WhenTooManyIds(){
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id <= AnimeService.MAX_PAGE_SIZE; id++) {
+            ids.add(id);
+        }
+
+        StepVerifier.create(animeService.findByIds(ids))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("findById hits the database only once for the same id")
+    public void findById_ReturnCachedAnime_WhenCalledTwice(){
+        StepVerifier.create(animeService.findById(1).then(animeService.findById(1)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("findById coalesces concurrent misses for the same id into one query")
+    public void findById_LoadOnce_WhenConcurrentMissesForSameId(){
+        BDDMockito.when(animeRepository.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(anime).delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(Flux.merge(animeService.findById(1), animeService.findById(1), animeService.findById(1)))
+                .expectSubscription()
+                .expectNext(anime, anime, anime)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("findById caches not found ids")
+    public void findById_ReturnCachedNotFound_WhenCalledTwice(){
+        BDDMockito.when(animeRepository.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(animeService.findById(1).onErrorResume(error -> animeService.findById(1)))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("update refreshes the cached anime")
+    public void update_RefreshCachedAnime_WhenSuccessful(){
+        Anime updatedAnime = AnimeCreator.createUpdatedAnime();
+
+        BDDMockito.when(animeRepository.findById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(AnimeCreator.createValidAnime()));
+
+        BDDMockito.when(animeRepository.updateName(1, updatedAnime.getName()))
+                .thenReturn(Mono.just(updatedAnime));
+
+        StepVerifier.create(animeService.findById(1)
+                        .then(animeService.update(updatedAnime))
+                        .then(animeService.findById(1)))
+                .expectSubscription()
+                .expectNext(updatedAnime)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("delete evicts the cached anime")
+    public void delete_EvictCachedAnime_WhenSuccessful(){
+        StepVerifier.create(animeService.findById(1)
+                        .then(animeService.delete(1))
+                        .then(animeService.findById(1)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.times(2)).findById(1);
+    }
+
     @Test
     @DisplayName("save creates an anime when successful")
     public void save_CreatesAnime_WhenSuccessful(){
@@ -118,6 +524,37 @@ class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("save ignores the id and version sent by the client and publishes a CREATED change")
+    public void save_CreatesAnime_WhenIdAndVersionAreSent(){
+        long before = animeChangeFeed.latestSequence();
+
+        StepVerifier.create(animeService.save(AnimeCreator.createAnimeToBeSaved().withId(7).withVersion(3)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository).save(AnimeCreator.createAnimeToBeSaved());
+        StepVerifier.create(animeChangeFeed.changes(before).take(1).map(AnimeChange::getType))
+                .expectNext(AnimeChange.Type.CREATED)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("save, update and delete publish their changes to the change feed in order")
+    public void write_PublishChanges_WhenSuccessful(){
+        long before = animeChangeFeed.latestSequence();
+
+        StepVerifier.create(animeService.save(AnimeCreator.createAnimeToBeSaved())
+                        .then(animeService.update(AnimeCreator.createValidAnime()))
+                        .then(animeService.delete(1)))
+                .verifyComplete();
+
+        StepVerifier.create(animeChangeFeed.changes(before).take(3).map(AnimeChange::getType))
+                .expectNext(AnimeChange.Type.CREATED, AnimeChange.Type.UPDATED, AnimeChange.Type.DELETED)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("saveAll creates a list of anime when successful")
     public void saveAll_CreatesListOfAnimes_WhenSuccessful(){
@@ -138,15 +575,164 @@ class AnimeServiceTest {
 
         Anime animeEmptyName = animeBeToSaved.withName("");
 
-        BDDMockito.when(animeRepository.saveAll(ArgumentMatchers.anyIterable()))
-                .thenReturn(Flux.just(anime, animeEmptyName));
+        StepVerifier.create(animeService.saveAll(List.of(animeBeToSaved, animeEmptyName)))
+                .expectSubscription()
+                .expectError(ResponseStatusException.class)
+                .verify();
 
+        BDDMockito.verify(animeRepository, BDDMockito.never()).insertAll(ArgumentMatchers.anyList());
+    }
 
-        StepVerifier.create(animeService.saveAll(List.of(animeBeToSaved, animeEmptyName)))
+    @Test
+    @DisplayName("saveAll writes the animes in chunks of the configured size")
+    public void saveAll_InsertInChunks_WhenListIsBiggerThanChunkSize(){
+
+        animeProperties.getBatch().setChunkSize(2);
+
+        Anime animeBeToSaved = AnimeCreator.createAnimeToBeSaved();
+
+        BDDMockito.when(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0)));
+
+        StepVerifier.create(animeService.saveAll(List.of(animeBeToSaved, animeBeToSaved, animeBeToSaved)))
+                .expectSubscription()
+                .expectNextCount(3)
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository).insertAll(List.of(animeBeToSaved, animeBeToSaved));
+        BDDMockito.verify(animeRepository).insertAll(List.of(animeBeToSaved));
+        BDDMockito.verify(transactionalOperator).transactional(ArgumentMatchers.<Flux<Anime>>any());
+    }
+
+    @Test
+    @DisplayName("saveAll opens one transaction per chunk when transaction scope is chunk")
+    public void saveAll_OpenTransactionPerChunk_WhenTransactionScopeIsChunk(){
+
+        animeProperties.getBatch().setChunkSize(1);
+        animeProperties.getBatch().setTransactionScope(AnimeProperties.TransactionScope.CHUNK);
+
+        BDDMockito.when(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .thenReturn(Flux.just(anime));
+
+        StepVerifier.create(animeService.saveAll(List.of(anime, anime)))
+                .expectSubscription()
+                .expectNext(anime, anime)
+                .verifyComplete();
+
+        BDDMockito.verify(transactionalOperator, BDDMockito.times(2)).transactional(ArgumentMatchers.<Flux<Anime>>any());
+    }
+
+    @Test
+    @DisplayName("ingest writes the stream in chunks and acknowledges each chunk")
+    public void ingest_AcknowledgeEachChunk_WhenSuccessful(){
+
+        animeProperties.getBatch().setChunkSize(2);
+
+        BDDMockito.when(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0)));
+
+        StepVerifier.create(animeService.ingest(Flux.just(anime.withId(1), anime.withId(2), anime.withId(3))))
+                .expectSubscription()
+                .assertNext(ack -> {
+                    Assertions.assertEquals(0, ack.getChunk());
+                    Assertions.assertEquals(2, ack.getCount());
+                    Assertions.assertEquals(1, ack.getFirstId());
+                    Assertions.assertEquals(2, ack.getLastId());
+                })
+                .assertNext(ack -> {
+                    Assertions.assertEquals(1, ack.getChunk());
+                    Assertions.assertEquals(1, ack.getCount());
+                    Assertions.assertEquals(3, ack.getLastId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("ingest requests only the chunks in flight from the uploaded stream")
+    public void ingest_BoundRowsInFlight_WhenDatabaseIsSlowerThanUpload(){
+
+        animeProperties.getBatch().setChunkSize(10);
+        animeProperties.getBatch().setMaxInFlightChunks(2);
+
+        AtomicLong requested = new AtomicLong();
+
+        BDDMockito.when(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .thenReturn(Flux.never());
+
+        StepVerifier.create(animeService.ingest(Flux.range(1, 1_000_000)
+                        .map(anime::withId)
+                        .doOnRequest(n -> requested.accumulateAndGet(n, (a, b) -> Math.min(Long.MAX_VALUE, a + b)))))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+
+        Assertions.assertTrue(requested.get() <= 10 * 3, "rows requested from the upload: " + requested.get());
+    }
+
+    @Test
+    @DisplayName("ingest writes a partial chunk when the chunk window expires before the upload fills it")
+    public void ingest_WritePartialChunk_WhenChunkWindowExpires(){
+
+        animeProperties.getBatch().setChunkSize(10);
+        animeProperties.getBatch().setChunkWindow(Duration.ofMillis(200));
+
+        BDDMockito.when(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0)));
+
+        StepVerifier.withVirtualTime(() -> animeService.ingest(Flux.concat(
+                        Flux.just(anime.withId(1), anime.withId(2)),
+                        Mono.just(anime.withId(3)).delaySubscription(Duration.ofSeconds(5)))))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(200))
+                .assertNext(ack -> {
+                    Assertions.assertEquals(0, ack.getChunk());
+                    Assertions.assertEquals(2, ack.getCount());
+                    Assertions.assertEquals(2, ack.getLastId());
+                })
+                .thenAwait(Duration.ofSeconds(5))
+                .assertNext(ack -> {
+                    Assertions.assertEquals(1, ack.getChunk());
+                    Assertions.assertEquals(1, ack.getCount());
+                    Assertions.assertEquals(3, ack.getFirstId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("ingest holds expired chunk windows until the database asks for the next chunk")
+    public void ingest_WriteEveryAnime_WhenChunkWindowExpiresWithoutDemand(){
+
+        animeProperties.getBatch().setChunkSize(10);
+        animeProperties.getBatch().setChunkWindow(Duration.ofMillis(50));
+        animeProperties.getBatch().setMaxInFlightChunks(2);
+
+        BDDMockito.when(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0))
+                        .delaySubscription(Duration.ofSeconds(1)));
+
+        StepVerifier.withVirtualTime(() -> animeService.ingest(Flux.range(1, 100)
+                        .delayElements(Duration.ofMillis(30))
+                        .map(anime::withId)))
+                .expectSubscription()
+                .thenAwait(Duration.ofMinutes(1))
+                .recordWith(ArrayList::new)
+                .thenConsumeWhile(ack -> true)
+                .consumeRecordedWith(acks -> Assertions.assertEquals(100,
+                        acks.stream().mapToInt(AnimeChunkAck::getCount).sum()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("ingest returns error when the stream contains an empty name")
+    public void ingest_ReturnsError_WhenContainsInvalidName(){
+
+        StepVerifier.create(animeService.ingest(Flux.just(anime.withName(""))))
                 .expectSubscription()
-                .expectNext(this.anime)
                 .expectError(ResponseStatusException.class)
                 .verify();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).insertAll(ArgumentMatchers.anyList());
     }
 
     @Test
@@ -162,8 +748,8 @@ class AnimeServiceTest {
     @DisplayName("delete returns Mono error when does not exists")
     public void delete_ReturnMonoErro_WhenEmptyMonoIsReturned(){
 
-        BDDMockito.when(animeRepository.findById(ArgumentMatchers.anyInt()))
-                .thenReturn(Mono.empty());
+        BDDMockito.when(animeRepository.deleteAnimeById(ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.just(0));
 
         StepVerifier.create(animeService.delete(1))
                 .expectSubscription()
@@ -171,6 +757,22 @@ class AnimeServiceTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("delete returns Mono error with precondition failed when the version does not match")
+    public void delete_ReturnPreconditionFailed_WhenVersionDoesNotMatch(){
+
+        BDDMockito.when(animeRepository.deleteAnimeByIdIfVersion(1, 1))
+                .thenReturn(Mono.just(0));
+
+        BDDMockito.when(animeRepository.existsById(1))
+                .thenReturn(Mono.just(true));
+
+        StepVerifier.create(animeService.delete(1, 1))
+                .expectSubscription()
+                .expectErrorMatches(error -> hasStatus(error, HttpStatus.PRECONDITION_FAILED))
+                .verify();
+    }
+
     @Test
     @DisplayName("update save updated anime and returns empty mono when successful")
     public void update_SaveUpdatedAnime_WhenSuccessful(){
@@ -178,13 +780,61 @@ class AnimeServiceTest {
         StepVerifier.create(animeService.update(AnimeCreator.createValidAnime()))
                 .expectSubscription()
                 .verifyComplete();
+
+        BDDMockito.verify(animeRepository).updateName(1, "Dragon Ball");
+        BDDMockito.verify(animeRepository, BDDMockito.never()).findById(ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("update writes only when the version matches the expected one")
+    public void update_UseExpectedVersion_WhenVersionIsInformed(){
+        Anime updatedAnime = AnimeCreator.createUpdatedAnime();
+
+        BDDMockito.when(animeRepository.updateNameIfVersion(1, updatedAnime.getName(), 1))
+                .thenReturn(Mono.just(updatedAnime.withVersion(2)));
+
+        StepVerifier.create(animeService.update(updatedAnime, 1))
+                .expectSubscription()
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString());
+    }
+
+    @Test
+    @DisplayName("update returns Mono error with precondition failed when the anime was changed concurrently")
+    public void update_ReturnPreconditionFailed_WhenVersionIsStale(){
+        BDDMockito.when(animeRepository.updateNameIfVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString(), ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepository.existsById(1))
+                .thenReturn(Mono.just(true));
+
+        StepVerifier.create(animeService.update(AnimeCreator.createUpdatedAnime(), 1))
+                .expectSubscription()
+                .expectErrorMatches(error -> hasStatus(error, HttpStatus.PRECONDITION_FAILED))
+                .verify();
+    }
+
+    @Test
+    @DisplayName("update returns Mono error with not found when the versioned anime does not exist")
+    public void update_ReturnNotFound_WhenVersionedAnimeDoesNotExist(){
+        BDDMockito.when(animeRepository.updateNameIfVersion(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString(), ArgumentMatchers.anyInt()))
+                .thenReturn(Mono.empty());
+
+        BDDMockito.when(animeRepository.existsById(1))
+                .thenReturn(Mono.just(false));
+
+        StepVerifier.create(animeService.update(AnimeCreator.createUpdatedAnime(), 1))
+                .expectSubscription()
+                .expectErrorMatches(error -> hasStatus(error, HttpStatus.NOT_FOUND))
+                .verify();
     }
 
     @Test
     @DisplayName("update returns Mono error when does not exists")
     public void update_ReturnMonoErro_WhenEmptyMonoIsReturned(){
 
-        BDDMockito.when(animeRepository.findById(ArgumentMatchers.anyInt()))
+        BDDMockito.when(animeRepository.updateName(ArgumentMatchers.anyInt(), ArgumentMatchers.anyString()))
                 .thenReturn(Mono.empty());
 
         StepVerifier.create(animeService.update(AnimeCreator.createValidAnime()))
@@ -192,4 +842,14 @@ class AnimeServiceTest {
                 .expectError(ResponseStatusException.class)
                 .verify();
     }
-}
\ No newline at end of file
+
+    private boolean hasStatus(Throwable error, HttpStatus status) {
+        return error instanceof ResponseStatusException
+                && ((ResponseStatusException) error).getStatus() == status;
+    }
+
+    private String cursor(int position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(position).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,76 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+@ExtendWith(SpringExtension.class)
+class AnimeSnapshotLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private AnimeRepository animeRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AnimeSnapshot animeSnapshot;
+
+    private AnimeSnapshotLoader animeSnapshotLoader;
+
+    @BeforeEach
+    public void setUp(){
+        AnimeProperties animeProperties = new AnimeProperties();
+        animeProperties.getSnapshot().setEnabled(true);
+        animeProperties.getSnapshot().setPath(directory.resolve("anime.snapshot").toString());
+        animeSnapshot = new AnimeSnapshot(animeProperties, Runnable::run);
+        animeSnapshot.replaceAll(Flux.just(new Anime(1, "Naruto", 0), new Anime(2, "One Piece", 3))).block();
+        animeSnapshotLoader = new AnimeSnapshotLoader(animeRepository, animeProperties, animeSnapshot,
+                new R2dbcProperties(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("apply removes deleted animes and rereads only the ids the snapshot does not have in that version")
+    public void apply_RereadOnlyOutdatedAnimes_WhenNotificationsArrive(){
+        BDDMockito.when(animeRepository.findByIds(ArgumentMatchers.argThat(ids -> Set.of(ids).equals(Set.of(2, 7)))))
+                .thenReturn(Flux.just(new Anime(2, "One Piece Film Red", 4), new Anime(7, "Monster", 0)));
+
+        StepVerifier.create(animeSnapshotLoader.apply(List.of("U:1:0", "U:2:4", "I:7:0", "D:1", "not a change")))
+                .verifyComplete();
+
+        Assertions.assertNull(animeSnapshot.get(1));
+        Assertions.assertEquals(new Anime(2, "One Piece Film Red", 4), animeSnapshot.get(2));
+        Assertions.assertEquals(new Anime(7, "Monster", 0), animeSnapshot.get(7));
+        Assertions.assertEquals(5, meterRegistry.counter(AnimeSnapshotLoader.DELTAS_METRIC).count());
+    }
+
+    @Test
+    @DisplayName("apply does not query the database for changes this instance already wrote to the snapshot")
+    public void apply_SkipDatabase_WhenSnapshotIsUpToDate(){
+        animeSnapshot.put(new Anime(3, "Monster", 0));
+
+        StepVerifier.create(animeSnapshotLoader.apply(List.of("I:3:0", "U:2:3")))
+                .verifyComplete();
+
+        BDDMockito.verify(animeRepository, BDDMockito.never()).findByIds(ArgumentMatchers.any());
+    }
+}
@@ -0,0 +1,176 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.config.AnimeProperties;
+import academy.devdojo.webflux.domain.Anime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class AnimeSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private AnimeProperties animeProperties;
+
+    private AnimeSnapshot animeSnapshot;
+
+    private final List<Anime> animes = List.of(
+            new Anime(1, "Naruto", 0),
+            new Anime(2, "Kimetsu no Yaiba 鬼滅の刃", 3),
+            new Anime(5, null, 1));
+
+    @BeforeEach
+    public void setUp(){
+        animeProperties = new AnimeProperties();
+        animeProperties.getSnapshot().setEnabled(true);
+        animeProperties.getSnapshot().setPath(directory.resolve("anime.snapshot").toString());
+        animeProperties.getSnapshot().setCompactionThreshold(3);
+        animeSnapshot = newSnapshot();
+    }
+
+    @Test
+    @DisplayName("replaceAll writes the animes to the file and serves them by id and in id order")
+    public void replaceAll_ServeAnimesFromFile_WhenCatalogIsLoaded(){
+        Assertions.assertFalse(animeSnapshot.isReady());
+
+        StepVerifier.create(animeSnapshot.replaceAll(Flux.fromIterable(animes)))
+                .expectNext(animes.size())
+                .verifyComplete();
+
+        Assertions.assertTrue(animeSnapshot.isReady());
+        Assertions.assertEquals(animes.get(1), animeSnapshot.get(2));
+        Assertions.assertEquals(animes.get(2), animeSnapshot.get(5));
+        Assertions.assertNull(animeSnapshot.get(3));
+        StepVerifier.create(animeSnapshot.all())
+                .expectNextSequence(animes)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("open serves the file written by the previous run right away")
+    public void open_ServeAnimes_WhenPreviousFileIsReopened(){
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+
+        AnimeSnapshot restarted = newSnapshot();
+
+        Assertions.assertTrue(restarted.open());
+        Assertions.assertTrue(restarted.isReady());
+        Assertions.assertEquals(animes.get(0), restarted.get(1));
+        StepVerifier.create(restarted.all())
+                .expectNextSequence(animes)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("fingerprint changes with every write and differs from the last one served by the previous run")
+    public void fingerprint_Change_WhenSnapshotIsWrittenOrReopened(){
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+        String loaded = animeSnapshot.fingerprint();
+
+        animeSnapshot.put(new Anime(1, "Naruto Shippuden", 1));
+        String written = animeSnapshot.fingerprint();
+        Assertions.assertNotEquals(loaded, written);
+
+        AnimeSnapshot restarted = newSnapshot();
+        Assertions.assertTrue(restarted.open());
+        Assertions.assertNotEquals(written, restarted.fingerprint());
+    }
+
+    @Test
+    @DisplayName("open ignores a file that is not a snapshot and keeps reads on the database")
+    public void open_NotReady_WhenFileIsCorrupted() throws IOException {
+        Files.write(directory.resolve("anime.snapshot"), "not a snapshot at all".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertFalse(animeSnapshot.open());
+        Assertions.assertFalse(animeSnapshot.isReady());
+    }
+
+    @Test
+    @DisplayName("put and remove override the file, an older version never replaces a newer one")
+    public void put_OverrideFile_WhenAnimeIsWritten(){
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+
+        animeSnapshot.put(new Anime(1, "Naruto Shippuden", 1));
+        animeSnapshot.put(new Anime(1, "Naruto", 0));
+        animeSnapshot.remove(2);
+        animeSnapshot.put(new Anime(2, "Kimetsu no Yaiba", 4));
+
+        Assertions.assertEquals(new Anime(1, "Naruto Shippuden", 1), animeSnapshot.get(1));
+        Assertions.assertNull(animeSnapshot.get(2));
+        Assertions.assertTrue(animeSnapshot.isUpToDate(1, 1));
+        Assertions.assertFalse(animeSnapshot.isUpToDate(1, 2));
+        Assertions.assertTrue(animeSnapshot.isUpToDate(2, 10));
+        StepVerifier.create(animeSnapshot.all())
+                .expectNext(new Anime(1, "Naruto Shippuden", 1), animes.get(2))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("writes past the compaction threshold are written to a new file that survives a restart")
+    public void put_CompactToNewFile_WhenThresholdIsReached(){
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+
+        animeSnapshot.put(new Anime(3, "One Piece", 0));
+        animeSnapshot.put(new Anime(2, "Kimetsu no Yaiba", 4));
+        animeSnapshot.remove(1);
+
+        AnimeSnapshot restarted = newSnapshot();
+        Assertions.assertTrue(restarted.open());
+        StepVerifier.create(restarted.all())
+                .expectNext(new Anime(2, "Kimetsu no Yaiba", 4), new Anime(3, "One Piece", 0), animes.get(2))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("replaceAll keeps removals and newer versions written while the catalog was being reloaded")
+    public void replaceAll_KeepNewerWrites_WhenWrittenDuringReload(){
+        animeSnapshot.put(new Anime(2, "Kimetsu no Yaiba", 4));
+        animeSnapshot.put(new Anime(1, "Naruto (old)", 0));
+        animeSnapshot.remove(5);
+
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+
+        StepVerifier.create(animeSnapshot.all())
+                .expectNext(animes.get(0), new Anime(2, "Kimetsu no Yaiba", 4))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("markStale sends reads back to the database until a reload started after it installs")
+    public void markStale_NotReady_UntilNextReloadInstalls(){
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+        Sinks.Many<Anime> reloadBeforeDrop = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(animeSnapshot.replaceAll(reloadBeforeDrop.asFlux()))
+                .then(() -> {
+                    animeSnapshot.markStale();
+                    animes.forEach(reloadBeforeDrop::tryEmitNext);
+                    reloadBeforeDrop.tryEmitComplete();
+                })
+                .expectNext(animes.size())
+                .verifyComplete();
+
+        Assertions.assertFalse(animeSnapshot.isReady());
+
+        animeSnapshot.replaceAll(Flux.fromIterable(animes)).block();
+
+        Assertions.assertTrue(animeSnapshot.isReady());
+    }
+
+    // Compactacao na propria thread para o teste ser deterministico
+    private AnimeSnapshot newSnapshot() {
+        return new AnimeSnapshot(animeProperties, Runnable::run);
+    }
+}
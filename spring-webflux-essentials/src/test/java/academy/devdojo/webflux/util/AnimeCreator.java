@@ -14,6 +14,7 @@ public class AnimeCreator {
         return Anime.builder()
                 .id(1)
                 .name("Dragon Ball")
+                .version(1)
                 .build();
     }
 
@@ -21,6 +22,7 @@ public class AnimeCreator {
         return Anime.builder()
                 .id(1)
                 .name("Dragon Ball Super")
+                .version(1)
                 .build();
     }
 